@@ -0,0 +1,236 @@
+package com.example.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A small in-process read-through cache that holds at most maximumSize entries, evicting the least recently used
+ * one when full, and drops entries once they are older than the time to live.
+ *
+ * Keys are spread over independently locked segments, each an access-ordered map with its share of the maximum
+ * size, so concurrent reads of different keys rarely wait on each other and LRU order is kept per segment.
+ *
+ * Null values are cached like any other value, so a lookup for a missing row is only repeated once its entry
+ * expires or is invalidated. Loaders run outside the lock. A miss first parks a placeholder for its key, and only
+ * caches what it loaded if that placeholder is still there afterwards: invalidating the key removes it, so a
+ * concurrent write can never be hidden behind a stale entry, while loads of other keys are unaffected.
+ */
+public class BoundedCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 8;
+
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final LongSupplier ticker;
+    private final Segment<K, V>[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public BoundedCache(int maximumSize, long ttl, TimeUnit unit) {
+        this(maximumSize, ttl, unit, System::nanoTime);
+    }
+
+    // Takes the clock as a parameter so tests can move time forward
+    @SuppressWarnings("unchecked")
+    BoundedCache(int maximumSize, long ttl, TimeUnit unit, LongSupplier ticker) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1.");
+        }
+        this.maximumSize = maximumSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.ticker = ticker;
+        // A power of two, small enough that every segment holds a useful number of entries for its LRU order
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maximumSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            int capacity = maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0);
+            segments[i] = new Segment<>(capacity, evictions);
+        }
+    }
+
+    // Returns the cached value for the key, calling the loader and caching its result on a miss
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = ticker.getAsLong();
+        CachedValue<V> placeholder = new CachedValue<>(null, now, true);
+        segment.lock.lock();
+        try {
+            CachedValue<V> entry = segment.entries.get(key);
+            if (entry != null && !entry.loading) {
+                if (now - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return entry.value;
+                }
+                expirations.increment();
+            }
+            segment.entries.put(key, placeholder);
+        } finally {
+            segment.lock.unlock();
+        }
+
+        misses.increment();
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            segment.lock.lock();
+            try {
+                segment.entries.remove(key, placeholder);
+            } finally {
+                segment.lock.unlock();
+            }
+            throw e;
+        }
+        segment.lock.lock();
+        try {
+            // Gone if the key was invalidated (or the placeholder evicted) meanwhile; then do not cache
+            if (segment.entries.get(key) == placeholder) {
+                segment.entries.put(key, new CachedValue<>(value, now, false));
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        return value;
+    }
+
+    // Returns the cached value for the key, or null if it is not cached (or has expired); never loads
+    public V getIfPresent(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = ticker.getAsLong();
+        segment.lock.lock();
+        try {
+            CachedValue<V> entry = segment.entries.get(key);
+            if (entry == null || entry.loading) {
+                return null;
+            }
+            if (now - entry.loadedAt >= ttlNanos) {
+                segment.entries.remove(key);
+                expirations.increment();
+                return null;
+            }
+            return entry.value;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    // Removes the entry for the key, if any, so the next read goes to the loader
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            segment.entries.remove(key);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    // Removes every entry
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.entries.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    // Number of cached values, not counting loads in progress
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                for (CachedValue<V> entry : segment.entries.values()) {
+                    if (!entry.loading) {
+                        size++;
+                    }
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    // Entries dropped to stay within the maximum size
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    // Entries found past their time to live
+    public long expirationCount() {
+        return expirations.sum();
+    }
+
+    // Snapshot of the counters, for sizing the cache. Evictions are entries dropped to stay within the maximum
+    // size; expirations are entries found past their time to live.
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) size());
+        stats.put("maximumSize", (long) maximumSize);
+        stats.put("hits", hitCount());
+        stats.put("misses", missCount());
+        stats.put("evictions", evictionCount());
+        stats.put("expirations", expirationCount());
+        return stats;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static final class Segment<K, V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<K, CachedValue<V>> entries;
+
+        private Segment(int capacity, LongAdder evictions) {
+            this.entries = new LinkedHashMap<K, CachedValue<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, CachedValue<V>> eldest) {
+                    if (size() > capacity) {
+                        if (!eldest.getValue().loading) {
+                            evictions.increment();
+                        }
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    private static final class CachedValue<V> {
+        private final V value;
+        private final long loadedAt;
+        // A placeholder for a load in progress, not a value
+        private final boolean loading;
+
+        private CachedValue(V value, long loadedAt, boolean loading) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.loading = loading;
+        }
+    }
+}
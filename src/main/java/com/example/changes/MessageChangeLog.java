@@ -0,0 +1,324 @@
+package com.example.changes;
+
+import com.example.entity.Message;
+import com.example.event.MessageEvent;
+import com.example.exception.ChangesExpiredException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory log of message changes, numbered in the order they committed, for clients that sync incrementally.
+ *
+ * Seeded with one entry per existing message once the application is up, so reading from the start is a full
+ * sync, and kept current from MessageEvents. Compaction drops entries superseded by a later change to the same
+ * message, and tombstones older than app.changes.tombstone-retention-seconds; a cursor from before a dropped
+ * tombstone can no longer be answered, and neither can one issued before a restart, since the log is rebuilt
+ * with new sequence numbers. Cursors are "<epoch>:<sequence>", where the epoch identifies the rebuild.
+ */
+@Component
+public class MessageChangeLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageChangeLog.class);
+
+    // A read skipping other accounts' changes stops after looking at this many entries, and reports hasMore
+    static final int MAX_SCAN = 100_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long tombstoneRetentionMillis;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-log-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Entries [0, size) in sequence order, as parallel arrays; postedBy is 0 when the message had no author
+    private long[] sequences = new long[1024];
+    private int[] messageIds = new int[1024];
+    private int[] postedBys = new int[1024];
+    private boolean[] deletes = new boolean[1024];
+    private long[] loggedAt = new long[1024];
+    private int size;
+
+    // Sequence number of the latest entry for each message still in the log; older entries are superseded
+    private final Map<Integer, Long> latest = new HashMap<>();
+
+    private String epoch = newEpoch();
+    private long nextSequence = 1;
+
+    // Cursors before this sequence number may have missed a tombstone that has since been dropped
+    private long floor;
+
+    @Autowired
+    public MessageChangeLog(JdbcTemplate jdbcTemplate,
+                            @Value("${app.changes.tombstone-retention-seconds:86400}") long tombstoneRetentionSeconds,
+                            @Value("${app.changes.compaction-interval-seconds:60}") long compactionIntervalSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tombstoneRetentionMillis = TimeUnit.SECONDS.toMillis(tombstoneRetentionSeconds);
+        compactor.scheduleWithFixedDelay(this::compactQuietly, compactionIntervalSeconds, compactionIntervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    // Logs every existing message once the application (and its seed data) is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            size = 0;
+            latest.clear();
+            epoch = newEpoch();
+            nextSequence = 1;
+            floor = 0;
+            long now = System.currentTimeMillis();
+            RowCallbackHandler logRow = row -> append(row.getInt(1), row.getInt(2), false, now);
+            jdbcTemplate.query("select messageId, postedBy from message order by messageId", logRow);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        Message message = event.getMessage();
+        int postedBy = message.getPostedBy() == null ? 0 : message.getPostedBy();
+        record(message.getMessageId(), postedBy, event.getType() == MessageEvent.Type.DELETED);
+    }
+
+    // Method to log a change to a message, returning its sequence number
+    public long record(int messageId, int postedBy, boolean deleted) {
+        lock.writeLock().lock();
+        try {
+            return append(messageId, postedBy, deleted, System.currentTimeMillis());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the changes after a cursor, each message at most once, at its latest sequence number.
+     * @param cursor a nextCursor from an earlier read, or null to read the whole log
+     * @param limit the most changes to return
+     * @param accountId only return changes to this account's messages, or null for all
+     * @return the changes, with the cursor to read on from
+     * @throws IllegalArgumentException if the cursor is malformed
+     * @throws ChangesExpiredException if the log can no longer tell what changed since the cursor
+     */
+    public Slice read(String cursor, int limit, Integer accountId) {
+        lock.readLock().lock();
+        try {
+            long since = 0;
+            if (cursor != null && !cursor.isEmpty()) {
+                since = parseCursor(cursor);
+                if (since < floor) {
+                    throw new ChangesExpiredException();
+                }
+            }
+
+            int i = firstIndexAfter(since);
+            long position = since;
+            int scanned = 0;
+            List<Change> changes = new ArrayList<>(Math.min(limit, 64));
+            while (i < size && changes.size() < limit && scanned < MAX_SCAN) {
+                long sequence = sequences[i];
+                if (isLatest(i) && (accountId == null || postedBys[i] == accountId)) {
+                    changes.add(new Change(sequence, messageIds[i], deletes[i]));
+                }
+                position = sequence;
+                scanned++;
+                i++;
+            }
+            boolean hasMore = i < size;
+            if (!hasMore) {
+                // Superseded entries past the last one may have been compacted away; the client has seen it all
+                position = nextSequence - 1;
+            }
+            return new Slice(changes, epoch + ":" + position, hasMore);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Method to report how many entries the log holds, superseded ones included
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Method to drop superseded entries and expired tombstones
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            long cutoff = System.currentTimeMillis() - tombstoneRetentionMillis;
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                long sequence = sequences[i];
+                if (!isLatest(i)) {
+                    continue;
+                }
+                if (deletes[i] && loggedAt[i] < cutoff) {
+                    latest.remove(messageIds[i]);
+                    floor = Math.max(floor, sequence);
+                    continue;
+                }
+                sequences[kept] = sequence;
+                messageIds[kept] = messageIds[i];
+                postedBys[kept] = postedBys[i];
+                deletes[kept] = deletes[i];
+                loggedAt[kept] = loggedAt[i];
+                kept++;
+            }
+            size = kept;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compactor.shutdownNow();
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            logger.warn("Change log compaction failed", e);
+        }
+    }
+
+    private long append(int messageId, int postedBy, boolean deleted, long now) {
+        if (size == sequences.length) {
+            int capacity = size * 2;
+            sequences = Arrays.copyOf(sequences, capacity);
+            messageIds = Arrays.copyOf(messageIds, capacity);
+            postedBys = Arrays.copyOf(postedBys, capacity);
+            deletes = Arrays.copyOf(deletes, capacity);
+            loggedAt = Arrays.copyOf(loggedAt, capacity);
+        }
+        long sequence = nextSequence++;
+        sequences[size] = sequence;
+        messageIds[size] = messageId;
+        postedBys[size] = postedBy;
+        deletes[size] = deleted;
+        loggedAt[size] = now;
+        size++;
+        latest.put(messageId, sequence);
+        return sequence;
+    }
+
+    // Index of the first entry with a sequence number above the given one
+    private int firstIndexAfter(long sequence) {
+        int index = Arrays.binarySearch(sequences, 0, size, sequence);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private boolean isLatest(int index) {
+        Long sequence = latest.get(messageIds[index]);
+        return sequence != null && sequence == sequences[index];
+    }
+
+    private long parseCursor(String cursor) {
+        int separator = cursor.indexOf(':');
+        if (separator < 1) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        long sequence;
+        try {
+            sequence = Long.parseLong(cursor.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        if (sequence < 0) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        if (!cursor.substring(0, separator).equals(epoch)) {
+            // Issued before the log was last rebuilt, so its sequence numbers mean nothing now
+            throw new ChangesExpiredException();
+        }
+        if (sequence >= nextSequence) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        return sequence;
+    }
+
+    private static String newEpoch() {
+        return Long.toString(System.currentTimeMillis(), 36);
+    }
+
+    /**
+     * One read of the log: the changes, the cursor to pass on the next read, and whether more changes are already
+     * waiting after it.
+     */
+    public static final class Slice {
+
+        private final List<Change> changes;
+        private final String nextCursor;
+        private final boolean hasMore;
+
+        Slice(List<Change> changes, String nextCursor, boolean hasMore) {
+            this.changes = changes;
+            this.nextCursor = nextCursor;
+            this.hasMore = hasMore;
+        }
+
+        public List<Change> getChanges() {
+            return changes;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        public boolean hasMore() {
+            return hasMore;
+        }
+    }
+
+    public static final class Change {
+
+        private final long sequence;
+        private final int messageId;
+        private final boolean deleted;
+
+        Change(long sequence, int messageId, boolean deleted) {
+            this.sequence = sequence;
+            this.messageId = messageId;
+            this.deleted = deleted;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public int getMessageId() {
+            return messageId;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.controller;
+
+import com.example.dto.MessagePage;
+import com.example.entity.Message;
+import com.example.exception.MessageQueueFullException;
+import com.example.exception.PreconditionFailedException;
+import com.example.exception.TooManySubscribersException;
+import com.example.feed.MessageFeed;
+import com.example.service.MessageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+/**
+ * Controller for the message routes. Under the "reactive" profile ReactiveMessageController serves the basic
+ * message routes instead, and the rest (the streamed export and the Server-Sent Events feeds) are not served.
+ */
+@RestController
+@Profile("!reactive")
+public class MessageController {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageController.class);
+
+    private final MessageService messageService;
+    private final MessageFeed messageFeed;
+
+    @Autowired
+    public MessageController(MessageService messageService, MessageFeed messageFeed) {
+        this.messageService = messageService;
+        this.messageFeed = messageFeed;
+    }
+
+    // Endpoint to create a new message
+    @PostMapping("/messages")
+    public ResponseEntity<?> createMessage(@RequestBody Message message) {
+        try {
+            // Create message and return the result
+            Message createdMessage = messageService.createMessage(message);
+            return new ResponseEntity<>(createdMessage, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            // Return 400 status for validation errors
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (MessageQueueFullException e) {
+            // Return 429 status while the write-behind queue is full
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.TOO_MANY_REQUESTS);
+        } catch (Exception e) {
+            // Return 500 status for unexpected errors
+            logger.error("Creating a message failed", e);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Endpoint to retrieve all messages, or a single page of them when a cursor or limit is given
+    @GetMapping("/messages")
+    public ResponseEntity<?> getAllMessages(@RequestParam(required = false) String after,
+                                            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            List<Message> messages = messageService.getAllMessages();
+            return new ResponseEntity<>(messages, HttpStatus.OK);
+        }
+        try {
+            MessagePage page = messageService.getMessagesPage(after, limit);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // Endpoint to export all messages as newline-delimited JSON, streamed straight to the response
+    @GetMapping("/messages/export")
+    public ResponseEntity<StreamingResponseBody> exportMessages() {
+        StreamingResponseBody body = messageService::exportMessages;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Endpoint to follow every message created, updated or deleted, as Server-Sent Events
+    @GetMapping(value = "/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMessages(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return subscribe(null, lastEventId);
+    }
+
+    // Endpoint to follow one account's messages as Server-Sent Events
+    @GetMapping(value = "/accounts/{accountId}/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMessagesByAccountId(@PathVariable Integer accountId,
+                                                                @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return subscribe(accountId, lastEventId);
+    }
+
+    // Endpoint to retrieve messages by user ID, or a newest-first page of them when a cursor or limit is given
+    @GetMapping("/accounts/{accountId}/messages")
+    public ResponseEntity<?> getMessagesByAccountId(@PathVariable Integer accountId,
+                                                    @RequestParam(required = false) String after,
+                                                    @RequestParam(required = false) Integer limit,
+                                                    WebRequest request) {
+        // One ETag covers the whole list and every page of it; null when it cannot be tracked
+        String eTag = messageService.getMessagesETagByAccountId(accountId);
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            List<Message> messages = messageService.getMessagesByAccountId(accountId);
+            return messages != null ? okWithETag(eTag).body(messages) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        try {
+            MessagePage page = messageService.getMessagesPageByAccountId(accountId, after, limit);
+            return okWithETag(eTag).body(page);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // Endpoint to retrieve a message by ID
+    @GetMapping("/messages/{id}")
+    public ResponseEntity<Message> getMessageById(@PathVariable Integer id, WebRequest request) {
+        // Answer a matching If-None-Match with 304 before reading anything
+        String eTag = messageService.getMessageETag(id);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        Message message = messageService.getMessageById(id);
+        return message != null 
+            ? ResponseEntity.ok().eTag(eTag).body(message) 
+            : new ResponseEntity<>(null, HttpStatus.OK);
+    }
+
+    // Endpoint to delete a message by ID
+    @DeleteMapping("/messages/{id}")
+    public ResponseEntity<?> deleteMessage(@PathVariable Integer id) {
+        int rowsDeleted = messageService.deleteMessageById(id);
+    
+        // Return appropriate response
+        if (rowsDeleted > 0) {
+            return ResponseEntity.ok(rowsDeleted); // Message was found and deleted, return count
+        } else {
+            return ResponseEntity.ok(""); // Message not found, return empty body
+        }
+    }
+
+    // Endpoint to update a message by ID
+    @PatchMapping("/messages/{id}")
+    public ResponseEntity<?> updateMessage(@PathVariable Integer id, @RequestBody Message updatedMessage,
+                                           @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        try {
+            int rowsUpdated = messageService.updateMessage(id, updatedMessage, ifMatch);
+            if (rowsUpdated == 0) {
+                return new ResponseEntity<>("Message not found.", HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(rowsUpdated, HttpStatus.OK); // Return number of rows updated
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (PreconditionFailedException e) {
+            // Return 412 status when the message changed since the client read it
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.PRECONDITION_FAILED);
+        } catch (Exception e) {
+            logger.error("Updating message {} failed", id, e);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private static ResponseEntity.BodyBuilder okWithETag(String eTag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        return eTag != null ? response.eTag(eTag) : response;
+    }
+
+    private ResponseEntity<SseEmitter> subscribe(Integer accountId, String lastEventId) {
+        try {
+            return ResponseEntity.ok(messageFeed.subscribe(accountId, lastEventId));
+        } catch (TooManySubscribersException e) {
+            // Return 503 status while the server holds as many live feeds as it allows
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+}
@@ -1,10 +1,22 @@
 package com.example.controller;
 
+import com.example.dto.AccountView;
+import com.example.dto.MessageChangePage;
+import com.example.dto.MessageBatchResult;
+import com.example.dto.MessagePage;
 import com.example.entity.Account;
 import com.example.entity.Message;
+import com.example.exception.ChangesExpiredException;
+import com.example.exception.DuplicateUsernameException;
 import com.example.service.AccountService;
+import com.example.service.FollowService;
 import com.example.service.MessageService;
+import com.example.service.ResourceVersions;
+import com.example.service.TimelineService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,36 +24,47 @@ import org.springframework.web.bind.annotation.*;
 import java.util.List;
 
 /**
- * Controller for handling social media-related endpoints.
+ * Controller for handling social media-related endpoints; the message routes are in MessageController. Every
+ * handler here blocks on JPA or on password hashing, so like MessageController it is served by the servlet stack
+ * only and is left out under the "reactive" profile, where it would run on the event loop.
  */
 @RestController
+@Profile("!reactive")
 // @RequestMapping("/api") // Base URL for the endpoints
 public class SocialMediaController {
 
+    private static final Logger logger = LoggerFactory.getLogger(SocialMediaController.class);
+
     private final AccountService accountService;
     private final MessageService messageService;
+    private final FollowService followService;
+    private final TimelineService timelineService;
 
     @Autowired
-    public SocialMediaController(AccountService accountService, MessageService messageService) {
+    public SocialMediaController(AccountService accountService, MessageService messageService,
+                                 FollowService followService, TimelineService timelineService) {
         this.accountService = accountService;
         this.messageService = messageService;
+        this.followService = followService;
+        this.timelineService = timelineService;
     }
 
     // Endpoint to create a new account
     @PostMapping("/register")
     public ResponseEntity<Account> createAccount(@RequestBody Account account) {
         try {
-            // Check if the username already exists
-            if (accountService.existsByUsername(account.getUsername())) {
-                return new ResponseEntity<>(HttpStatus.CONFLICT); // Return 409 if username exists
-            }
-
-            // If the username does not exist, create the account
+            // Create the account; the unique username index rejects duplicates
+            String password = account.getPassword();
             Account createdAccount = accountService.createAccount(account);
-            return new ResponseEntity<>(createdAccount, HttpStatus.OK);
+            // Respond with the credentials the client registered, not the stored password hash
+            return new ResponseEntity<>(new Account(createdAccount.getAccountId(), createdAccount.getUsername(), password), HttpStatus.OK);
+        } catch (DuplicateUsernameException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT); // Return 409 if username exists
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // Return 400 for a blank username or short password
         } catch (Exception e) {
             // Log the error and return a 500 status for unexpected errors
-            e.printStackTrace();
+            logger.error("Registration failed", e);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
@@ -50,107 +73,140 @@ public class SocialMediaController {
     @PostMapping("/login")
     public ResponseEntity<Account> login(@RequestBody Account loginRequest) {
         try {
-            // Check if the account exists by username
-            Account account = accountService.getAccountByUsername(loginRequest.getUsername());
-            if (account != null && account.getPassword().equals(loginRequest.getPassword())) {
+            // Check the username and password against the stored hash
+            Integer accountId = accountService.authenticate(loginRequest.getUsername(), loginRequest.getPassword());
+            if (accountId != null) {
+                Account account = new Account(accountId, loginRequest.getUsername(), loginRequest.getPassword());
                 return new ResponseEntity<>(account, HttpStatus.OK); // Return 200 if login is successful
             } else {
                 return new ResponseEntity<>(HttpStatus.UNAUTHORIZED); // Return 401 if username or password is invalid
             }
         } catch (Exception e) {
             // Log the error and return a 500 status for unexpected errors
-            e.printStackTrace();
+            logger.error("Login failed", e);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
     
     // Endpoint to retrieve all accounts
     @GetMapping("/accounts")
-    public ResponseEntity<List<Account>> getAllAccounts() {
-        List<Account> accounts = accountService.getAllAccounts();
+    public ResponseEntity<List<AccountView>> getAllAccounts() {
+        List<AccountView> accounts = accountService.getAllAccounts();
         return new ResponseEntity<>(accounts, HttpStatus.OK);
     }
 
     // Endpoint to retrieve a single account by ID
     @GetMapping("/accounts/{id}")
-    public ResponseEntity<Account> getAccountById(@PathVariable Integer id) {
-        Account account = accountService.getAccountById(id);
-        return account != null ? new ResponseEntity<>(account, HttpStatus.OK) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    public ResponseEntity<AccountView> getAccountById(@PathVariable Integer id,
+                                                      @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        // Answer a matching If-None-Match with 304 before reading anything; weak tags compare equal here
+        String eTag = accountService.getAccountETag(id);
+        if (ifNoneMatch != null && ResourceVersions.matches(ifNoneMatch.replace("W/", ""), eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        AccountView account = accountService.getAccountById(id);
+        return account != null ? ResponseEntity.ok().eTag(eTag).body(account) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
-    // Endpoint to create a new message
-    @PostMapping("/messages")
-    public ResponseEntity<?> createMessage(@RequestBody Message message) {
+    // Endpoint to create many messages in one request, reporting a result per message
+    @PostMapping("/messages/batch")
+    public ResponseEntity<?> createMessages(@RequestBody List<Message> messages) {
         try {
-            // Create message and return the result
-            Message createdMessage = messageService.createMessage(message);
-            return new ResponseEntity<>(createdMessage, HttpStatus.OK);
+            List<MessageBatchResult> results = messageService.createMessages(messages);
+            return new ResponseEntity<>(results, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
-            // Return 400 status for validation errors
+            // Return 400 status for a batch that is empty or too large
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             // Return 500 status for unexpected errors
-            e.printStackTrace();
+            logger.error("Creating a message batch failed", e);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-    // Endpoint to retrieve all messages
-    @GetMapping("/messages")
-    public ResponseEntity<List<Message>> getAllMessages() {
-        List<Message> messages = messageService.getAllMessages();
-        return new ResponseEntity<>(messages, HttpStatus.OK);
+    // Endpoint to search message text, returning one page of the best matches
+    @GetMapping("/messages/search")
+    public ResponseEntity<?> searchMessages(@RequestParam(required = false) String q,
+                                            @RequestParam(required = false) String after,
+                                            @RequestParam(required = false) Integer limit) {
+        try {
+            MessagePage page = messageService.searchMessages(q, after, limit);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
     }
 
-    // Endpoint to retrieve messages by user ID
-    @GetMapping("/accounts/{accountId}/messages")
-    public ResponseEntity<List<Message>> getMessagesByAccountId(@PathVariable Integer accountId) {
-        List<Message> messages = messageService.getMessagesByAccountId(accountId);
-        return messages != null ? new ResponseEntity<>(messages, HttpStatus.OK) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    // Endpoint to read the messages created, updated or deleted since a cursor, for clients that sync incrementally
+    @GetMapping("/messages/changes")
+    public ResponseEntity<?> getMessageChanges(@RequestParam(required = false) String since,
+                                               @RequestParam(required = false) Integer limit,
+                                               @RequestParam(required = false) Integer accountId) {
+        try {
+            MessageChangePage page = messageService.getMessageChanges(since, limit, accountId);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (ChangesExpiredException e) {
+            // Return 410 status when the client has to sync from scratch
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.GONE);
+        }
     }
 
-    // Endpoint to retrieve a message by ID
-    @GetMapping("/messages/{id}")
-    public ResponseEntity<Message> getMessageById(@PathVariable Integer id) {
-        Message message = messageService.getMessageById(id);
-        return message != null 
-            ? new ResponseEntity<>(message, HttpStatus.OK) 
-            : new ResponseEntity<>(null, HttpStatus.OK);
+    // Endpoint to follow another account; following an account again changes nothing
+    @PutMapping("/accounts/{id}/following/{followeeId}")
+    public ResponseEntity<?> follow(@PathVariable Integer id, @PathVariable Integer followeeId) {
+        try {
+            followService.follow(id, followeeId);
+            return ResponseEntity.ok("");
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
     }
 
+    // Endpoint to stop following an account
+    @DeleteMapping("/accounts/{id}/following/{followeeId}")
+    public ResponseEntity<?> unfollow(@PathVariable Integer id, @PathVariable Integer followeeId) {
+        int rowsDeleted = followService.unfollow(id, followeeId);
+        return rowsDeleted > 0 ? ResponseEntity.ok(rowsDeleted) : ResponseEntity.ok("");
+    }
 
-    // Endpoint to delete a message by ID
-    @DeleteMapping("/messages/{id}")
-    public ResponseEntity<?> deleteMessage(@PathVariable Integer id) {
-        int rowsDeleted = messageService.deleteMessageById(id);
-    
-        // Return appropriate response
-        if (rowsDeleted > 0) {
-            return ResponseEntity.ok(rowsDeleted); // Message was found and deleted, return count
-        } else {
-            return ResponseEntity.ok(""); // Message not found, return empty body
-        }
+    // Endpoint to list the ids of the accounts an account follows
+    @GetMapping("/accounts/{id}/following")
+    public ResponseEntity<List<Integer>> getFollowing(@PathVariable Integer id) {
+        return new ResponseEntity<>(followService.listFollowing(id), HttpStatus.OK);
     }
 
-    // Endpoint to update account information
-    @PutMapping("/accounts/{id}")
-    public ResponseEntity<Account> updateAccount(@PathVariable Integer id, @RequestBody Account updatedAccount) {
-        Account account = accountService.updateAccount(id, updatedAccount);
-        return account != null ? new ResponseEntity<>(account, HttpStatus.OK) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    // Endpoint to list the ids of the accounts following an account
+    @GetMapping("/accounts/{id}/followers")
+    public ResponseEntity<List<Integer>> getFollowers(@PathVariable Integer id) {
+        return new ResponseEntity<>(followService.listFollowers(id), HttpStatus.OK);
     }
 
-    // Endpoint to update a message by ID
-    @PatchMapping("/messages/{id}")
-    public ResponseEntity<?> updateMessage(@PathVariable Integer id, @RequestBody Message updatedMessage) {
+    // Endpoint to read a page of an account's home timeline: messages from the accounts it follows, newest first
+    @GetMapping("/accounts/{id}/timeline")
+    public ResponseEntity<?> getTimeline(@PathVariable Integer id, @RequestParam(required = false) String after,
+                                         @RequestParam(required = false) Integer limit) {
         try {
-            int rowsUpdated = messageService.updateMessage(id, updatedMessage);
-            return new ResponseEntity<>(rowsUpdated, HttpStatus.OK); // Return number of rows updated
+            MessagePage page = timelineService.getTimeline(id, after, limit);
+            return page != null ? new ResponseEntity<>(page, HttpStatus.OK) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-}
\ No newline at end of file
+    // Endpoint to update account information
+    @PutMapping("/accounts/{id}")
+    public ResponseEntity<AccountView> updateAccount(@PathVariable Integer id, @RequestBody Account updatedAccount) {
+        try {
+            Account account = accountService.updateAccount(id, updatedAccount);
+            return account != null
+                ? new ResponseEntity<>(new AccountView(account.getAccountId(), account.getUsername()), HttpStatus.OK)
+                : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (DuplicateUsernameException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT); // Return 409 if the new username is taken
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // Return 400 for a blank username or short password
+        }
+    }
+}
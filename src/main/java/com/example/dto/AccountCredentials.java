@@ -0,0 +1,30 @@
+package com.example.dto;
+
+/**
+ * The parts of an account needed to check a login: its id and stored password hash. Never sent to clients.
+ */
+public class AccountCredentials {
+
+    private final Integer accountId;
+    private final String passwordHash;
+
+    public AccountCredentials(Integer accountId, String passwordHash) {
+        this.accountId = accountId;
+        this.passwordHash = passwordHash;
+    }
+
+    public Integer getAccountId() {
+        return accountId;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountCredentials{" +
+                "accountId=" + accountId +
+                '}';
+    }
+}
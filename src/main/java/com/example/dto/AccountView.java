@@ -0,0 +1,43 @@
+package com.example.dto;
+
+/**
+ * Read-only view of an Account returned by the account read endpoints. It leaves out the password, and is
+ * selected with a constructor expression so reads never load or track the Account entity.
+ */
+public class AccountView {
+
+    private Integer accountId;
+    private String username;
+
+    public AccountView() {
+    }
+
+    public AccountView(Integer accountId, String username) {
+        this.accountId = accountId;
+        this.username = username;
+    }
+
+    public Integer getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(Integer accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountView{" +
+                "accountId=" + accountId +
+                ", username='" + username + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.dto;
+
+import com.example.entity.Message;
+
+/**
+ * The outcome of one item of a POST /messages/batch request, reported at the same index as the request item.
+ *
+ * Created items carry the saved message; rejected items carry the validation error instead.
+ */
+public class MessageBatchResult {
+
+    public static final String CREATED = "created";
+    public static final String REJECTED = "rejected";
+
+    private int index;
+    private String status;
+    private Message message;
+    private String error;
+
+    public MessageBatchResult() {
+    }
+
+    public MessageBatchResult(int index, String status, Message message, String error) {
+        this.index = index;
+        this.status = status;
+        this.message = message;
+        this.error = error;
+    }
+
+    public static MessageBatchResult created(int index, Message message) {
+        return new MessageBatchResult(index, CREATED, message, null);
+    }
+
+    public static MessageBatchResult rejected(int index, String error) {
+        return new MessageBatchResult(index, REJECTED, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public void setMessage(Message message) {
+        this.message = message;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageBatchResult{" +
+                "index=" + index +
+                ", status='" + status + '\'' +
+                ", message=" + message +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.dto;
+
+import com.example.entity.Message;
+
+/**
+ * One entry of GET /messages/changes: the current state of a message that changed, or a tombstone for one that
+ * was deleted.
+ *
+ * Upserts carry the message as it is now, which may include later edits than the one that put it in the change
+ * log; deletes carry only the messageId. A message appears at most once per page, at its latest sequence number.
+ */
+public class MessageChange {
+
+    public static final String UPSERT = "upsert";
+    public static final String DELETE = "delete";
+
+    private long sequence;
+    private String type;
+    private Integer messageId;
+    private Message message;
+
+    public MessageChange() {
+    }
+
+    public MessageChange(long sequence, String type, Integer messageId, Message message) {
+        this.sequence = sequence;
+        this.type = type;
+        this.messageId = messageId;
+        this.message = message;
+    }
+
+    public static MessageChange upsert(long sequence, Message message) {
+        return new MessageChange(sequence, UPSERT, message.getMessageId(), message);
+    }
+
+    public static MessageChange delete(long sequence, Integer messageId) {
+        return new MessageChange(sequence, DELETE, messageId, null);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Integer getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(Integer messageId) {
+        this.messageId = messageId;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public void setMessage(Message message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageChange{" +
+                "sequence=" + sequence +
+                ", type='" + type + '\'' +
+                ", messageId=" + messageId +
+                ", message=" + message +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.dto;
+
+import java.util.List;
+
+/**
+ * A page of GET /messages/changes.
+ *
+ * Unlike MessagePage, the nextCursor is never null: a client stores it and passes it back as "since" on its next
+ * sync to get only what changed after this page. hasMore is true when the client should ask again straight away.
+ */
+public class MessageChangePage {
+
+    private List<MessageChange> changes;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public MessageChangePage() {
+    }
+
+    public MessageChangePage(List<MessageChange> changes, String nextCursor, boolean hasMore) {
+        this.changes = changes;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<MessageChange> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<MessageChange> changes) {
+        this.changes = changes;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageChangePage{" +
+                "changes=" + changes +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", hasMore=" + hasMore +
+                '}';
+    }
+}
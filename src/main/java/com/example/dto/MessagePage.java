@@ -0,0 +1,49 @@
+package com.example.dto;
+
+import com.example.entity.Message;
+
+import java.util.List;
+
+/**
+ * A single page of messages returned by the paginated message endpoints.
+ *
+ * The nextCursor is opaque to clients: pass it back unchanged to fetch the following page. It is null when there
+ * are no more messages to read.
+ */
+public class MessagePage {
+
+    private List<Message> messages;
+    private String nextCursor;
+
+    public MessagePage() {
+    }
+
+    public MessagePage(List<Message> messages, String nextCursor) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<Message> messages) {
+        this.messages = messages;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public String toString() {
+        return "MessagePage{" +
+                "messages=" + messages +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.entity;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
 import javax.persistence.*;
 
 /**
@@ -11,11 +15,14 @@ import javax.persistence.*;
 @Table(name="account")
 public class Account {
     /**
-     * An id for this Account. You should use this as the Entity's ID.
+     * An id for this Account. You should use this as the Entity's ID. Ids are drawn from a sequence in blocks (see
+     * PooledSequenceGenerator) so registrations do not need a round trip each.
      */
     @Column(name="accountId")
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "account_seq")
+    @GenericGenerator(name = "account_seq", strategy = "com.example.entity.PooledSequenceGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "account_seq"))
     private Integer accountId;
     /**
      * A username for this Account (must be unique and not blank)
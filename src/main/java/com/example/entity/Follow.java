@@ -0,0 +1,91 @@
+package com.example.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * One account following another. The pair of ids is the primary key, so an account can follow another at most
+ * once.
+ */
+@Entity
+@Table(name="follow")
+@IdClass(Follow.Key.class)
+public class Follow {
+    /**
+     * The account doing the following
+     */
+    @Id
+    @Column(name="followerId")
+    private Integer followerId;
+    /**
+     * The account being followed
+     */
+    @Id
+    @Column(name="followeeId")
+    private Integer followeeId;
+
+    public Follow() {
+
+    }
+
+    public Follow(Integer followerId, Integer followeeId) {
+        this.followerId = followerId;
+        this.followeeId = followeeId;
+    }
+
+    public Integer getFollowerId() {
+        return followerId;
+    }
+
+    public void setFollowerId(Integer followerId) {
+        this.followerId = followerId;
+    }
+
+    public Integer getFolloweeId() {
+        return followeeId;
+    }
+
+    public void setFolloweeId(Integer followeeId) {
+        this.followeeId = followeeId;
+    }
+
+    @Override
+    public String toString() {
+        return "Follow{" +
+                "followerId=" + followerId +
+                ", followeeId=" + followeeId +
+                '}';
+    }
+
+    /**
+     * Composite primary key of a Follow.
+     */
+    public static class Key implements Serializable {
+
+        private Integer followerId;
+        private Integer followeeId;
+
+        public Key() {
+
+        }
+
+        public Key(Integer followerId, Integer followeeId) {
+            this.followerId = followerId;
+            this.followeeId = followeeId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(followerId, key.followerId) && Objects.equals(followeeId, key.followeeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(followerId, followeeId);
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.entity;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
 import javax.persistence.*;
 
 /**
@@ -11,10 +15,14 @@ import javax.persistence.*;
 @Table(name="message")
 public class Message {
      /**
-     * An id for this message which will be automatically generated by the database.
+     * An id for this message which will be automatically generated by the database. Ids are drawn from a sequence
+     * in blocks (see PooledSequenceGenerator) so inserts can be sent to the database in JDBC batches.
      */
      @Column (name="messageId")
-     @Id @GeneratedValue
+     @Id
+     @GeneratedValue(generator = "message_seq")
+     @GenericGenerator(name = "message_seq", strategy = "com.example.entity.PooledSequenceGenerator",
+             parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "message_seq"))
     private Integer messageId;
     /**
      * The id for the user who has posted this message. We will assume that this is provided by the front-end of this
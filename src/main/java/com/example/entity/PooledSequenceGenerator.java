@@ -0,0 +1,34 @@
+package com.example.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Sequence based id generator that hands out ids from blocks reserved with a single database round trip.
+ *
+ * The block size is read from the "app.id.allocation_size" Hibernate setting (spring.jpa.properties.app.id.allocation_size
+ * in application.properties) so it can be tuned without touching the entities, and ids are assigned with the
+ * pooled-lo optimizer: each sequence value is the first id of its block, so the first id handed out is the
+ * sequence's start value.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE_SETTING = "app.id.allocation_size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        Object allocationSize = settings.get(ALLOCATION_SIZE_SETTING);
+        params.setProperty(INCREMENT_PARAM,
+                allocationSize != null ? allocationSize.toString() : String.valueOf(DEFAULT_ALLOCATION_SIZE));
+        params.setProperty(OPT_PARAM, "pooled-lo");
+        super.configure(type, params, serviceRegistry);
+    }
+}
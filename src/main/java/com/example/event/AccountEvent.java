@@ -0,0 +1,50 @@
+package com.example.event;
+
+/**
+ * Published by AccountService whenever an account is created, updated (including a password rehash) or deleted.
+ * Listeners should use {@code @TransactionalEventListener(fallbackExecution = true)} so they only see committed
+ * changes.
+ *
+ * Carries the stored password hash, never the password itself; for DELETED only accountId and username are set.
+ */
+public class AccountEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final Integer accountId;
+    private final String username;
+    private final String passwordHash;
+
+    public AccountEvent(Type type, Integer accountId, String username, String passwordHash) {
+        this.type = type;
+        this.accountId = accountId;
+        this.username = username;
+        this.passwordHash = passwordHash;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Integer getAccountId() {
+        return accountId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountEvent{" +
+                "type=" + type +
+                ", accountId=" + accountId +
+                ", username='" + username + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.event;
+
+/**
+ * Published by FollowService whenever an account starts or stops following another. Listeners should use
+ * {@code @TransactionalEventListener(fallbackExecution = true)} so they only see committed changes.
+ */
+public class FollowEvent {
+
+    public enum Type { FOLLOWED, UNFOLLOWED }
+
+    private final Type type;
+    private final Integer followerId;
+    private final Integer followeeId;
+
+    public FollowEvent(Type type, Integer followerId, Integer followeeId) {
+        this.type = type;
+        this.followerId = followerId;
+        this.followeeId = followeeId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Integer getFollowerId() {
+        return followerId;
+    }
+
+    public Integer getFolloweeId() {
+        return followeeId;
+    }
+
+    @Override
+    public String toString() {
+        return "FollowEvent{" +
+                "type=" + type +
+                ", followerId=" + followerId +
+                ", followeeId=" + followeeId +
+                '}';
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.event;
+
+import com.example.entity.Message;
+
+/**
+ * Published by MessageService whenever a message is created, updated or deleted. Listeners should use
+ * {@code @TransactionalEventListener(fallbackExecution = true)} so they only see committed changes.
+ *
+ * The message is a detached copy. For UPDATED only messageId, postedBy and messageText are set, and for DELETED
+ * only messageId and postedBy; other fields are null when the service did not read them.
+ */
+public class MessageEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final Message message;
+
+    public MessageEvent(Type type, Message message) {
+        this.type = type;
+        this.message = message;
+    }
+
+    public static MessageEvent created(Message message) {
+        return new MessageEvent(Type.CREATED, new Message(message.getMessageId(), message.getPostedBy(),
+                message.getMessageText(), message.getTimePostedEpoch()));
+    }
+
+    public static MessageEvent updated(Integer messageId, Integer postedBy, String messageText) {
+        return new MessageEvent(Type.UPDATED, new Message(messageId, postedBy, messageText, null));
+    }
+
+    public static MessageEvent deleted(Integer messageId, Integer postedBy) {
+        return new MessageEvent(Type.DELETED, new Message(messageId, postedBy, null, null));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageEvent{" +
+                "type=" + type +
+                ", message=" + message +
+                '}';
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.exception;
+
+/**
+ * Thrown when a change feed cursor is older than the change log can answer for: tombstones it would need have
+ * been compacted away, or it was issued before the server restarted. The client has to sync from scratch.
+ */
+public class ChangesExpiredException extends RuntimeException {
+
+    public ChangesExpiredException() {
+        super("Changes since this cursor are no longer available; sync again without one.");
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.exception;
+
+/**
+ * Thrown when an account cannot be saved because another account already has its username.
+ */
+public class DuplicateUsernameException extends RuntimeException {
+
+    public DuplicateUsernameException(String username) {
+        super("Username '" + username + "' is already taken.");
+    }
+
+    public DuplicateUsernameException(String username, Throwable cause) {
+        super("Username '" + username + "' is already taken.", cause);
+    }
+}
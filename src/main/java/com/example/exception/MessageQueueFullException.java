@@ -0,0 +1,11 @@
+package com.example.exception;
+
+/**
+ * Thrown when a message cannot be accepted because the write-behind queue is full (or shutting down).
+ */
+public class MessageQueueFullException extends RuntimeException {
+
+    public MessageQueueFullException(int capacity) {
+        super("Too many messages are waiting to be written (capacity " + capacity + "); retry later.");
+    }
+}
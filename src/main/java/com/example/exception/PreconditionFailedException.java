@@ -0,0 +1,12 @@
+package com.example.exception;
+
+/**
+ * Thrown when a conditional update finds the resource changed since the client read it (its If-Match ETag no
+ * longer matches).
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException() {
+        super("The message has changed since it was read; read it again and retry.");
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.exception;
+
+/**
+ * Thrown when a live feed subscription cannot be opened because the server already has as many as it allows.
+ */
+public class TooManySubscribersException extends RuntimeException {
+
+    public TooManySubscribersException(int maximum) {
+        super("Too many live feed subscribers (maximum " + maximum + "); retry later.");
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.feed;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring of the most recent events of one topic, shared by all of the topic's subscribers. Each event is
+ * serialized once, when it is published; subscribers only keep the sequence number of the next event they need.
+ *
+ * Publishing is serialized by the ring's lock; reads are lock free. A reader that asks for an event that has
+ * already been overwritten gets null and knows it has fallen too far behind.
+ */
+final class FeedRing {
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int capacity;
+
+    // Sequence number the next event will get; written under the lock, read without it
+    private volatile long head;
+
+    FeedRing(int capacity) {
+        this.capacity = capacity;
+        this.entries = new AtomicReferenceArray<>(capacity);
+    }
+
+    synchronized long publish(String type, String data) {
+        long sequence = head;
+        entries.set((int) (sequence % capacity), new Entry(sequence, type, data));
+        head = sequence + 1;
+        return sequence;
+    }
+
+    long head() {
+        return head;
+    }
+
+    // Returns the event with the given sequence number, or null if it has been overwritten (or not written yet)
+    Entry get(long sequence) {
+        Entry entry = entries.get((int) (sequence % capacity));
+        return entry != null && entry.sequence == sequence ? entry : null;
+    }
+
+    static final class Entry {
+
+        final long sequence;
+        final String type;
+        final String data;
+
+        Entry(long sequence, String type, String data) {
+            this.sequence = sequence;
+            this.type = type;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.example.feed;
+
+import com.example.entity.Message;
+import com.example.event.MessageEvent;
+import com.example.exception.TooManySubscribersException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live feed of message changes over Server-Sent Events: one topic with every created, updated and deleted
+ * message, and one per account with just that account's messages.
+ *
+ * Each committed MessageEvent is serialized once into the ring buffer of its topics. Subscribers hold only a
+ * position in the ring, and a small pool of dispatch threads copies new events to each subscriber's connection,
+ * so a post costs the same work however many clients are listening, and never a query. Event ids are
+ * "<epoch>:<sequence>", the position in the topic prefixed with an epoch that identifies the topic instance (an
+ * account's topic is dropped with its last subscriber, and every topic starts over when the process restarts), so
+ * a client that reconnects with Last-Event-ID resumes where it left off if the ring still holds the events it
+ * missed, and is sent a "resync" when its id belongs to another instance.
+ *
+ * A subscriber that falls more than a ring's worth of events behind is sent a "resync" event, telling it to
+ * re-read the messages it cares about, and carries on from the newest event; one that needs more than
+ * app.feed.max-resyncs of those in a row is disconnected.
+ *
+ * Sends block while a client's connection is full, and a client that stops reading would hold its dispatch thread
+ * until Tomcat's write timeout fails the write. A send blocked for longer than app.feed.send-timeout-ms drops the
+ * subscriber, and the pool gets an extra thread until the blocked one comes back, so stalled clients never leave
+ * the others without dispatch threads.
+ */
+@Component
+public class MessageFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageFeed.class);
+
+    // Topic epochs are this process's start time plus a counter, so no two topic instances share one
+    private static final String PROCESS_EPOCH = Long.toString(System.currentTimeMillis(), 36);
+    private static final AtomicLong topicCount = new AtomicLong();
+
+    private static final int IDLE = 0;
+    private static final int SENDING = 1;
+    private static final int STALLED = 2;
+
+    private final ObjectWriter messageWriter;
+    private final int ringCapacity;
+    private final int maxSubscribers;
+    private final int maxResyncs;
+    private final long sendTimeoutNanos;
+
+    private final Topic globalTopic;
+    private final Map<Integer, Topic> accountTopics = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final ThreadPoolExecutor dispatcher;
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "message-feed-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public MessageFeed(ObjectMapper objectMapper,
+                       @Value("${app.feed.ring-capacity:1024}") int ringCapacity,
+                       @Value("${app.feed.max-subscribers:10000}") int maxSubscribers,
+                       @Value("${app.feed.max-resyncs:3}") int maxResyncs,
+                       @Value("${app.feed.dispatch-threads:4}") int dispatchThreads,
+                       @Value("${app.feed.heartbeat-seconds:15}") long heartbeatSeconds,
+                       @Value("${app.feed.send-timeout-ms:5000}") long sendTimeoutMs) {
+        this.messageWriter = objectMapper.writerFor(Message.class);
+        this.ringCapacity = ringCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.maxResyncs = maxResyncs;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        this.globalTopic = new Topic(ringCapacity);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "message-feed-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Comments keep idle connections open through proxies, and find clients that have gone away
+        heartbeats.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        long stallCheckMillis = Math.max(1, sendTimeoutMs / 4);
+        heartbeats.scheduleWithFixedDelay(this::dropStalledSubscribers, stallCheckMillis, stallCheckMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a subscription.
+     * @param accountId only send this account's messages, or null for every message
+     * @param lastEventId the Last-Event-ID header of a reconnecting client, or null
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter subscribe(Integer accountId, String lastEventId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new TooManySubscribersException(maxSubscribers);
+        }
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter, accountId);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+        if (accountId == null) {
+            join(globalTopic, subscriber, lastEventId);
+        } else {
+            // Under the map's lock, so the topic cannot be dropped by its last subscriber leaving meanwhile
+            accountTopics.compute(accountId, (key, existing) ->
+                    join(existing != null ? existing : new Topic(ringCapacity), subscriber, lastEventId));
+        }
+        schedule(subscriber);
+        return emitter;
+    }
+
+    // Positions the subscriber in the topic before publishers can see it
+    private Topic join(Topic topic, Subscriber subscriber, String lastEventId) {
+        subscriber.topic = topic;
+        // Resume after the client's last event if it came from this topic instance and the ring still has everything
+        // since; otherwise start from now
+        long head = topic.ring.head();
+        subscriber.position = head;
+        if (lastEventId != null && !lastEventId.isEmpty()) {
+            long resumeFrom = parseEventId(topic, lastEventId) + 1;
+            if (resumeFrom >= 0 && resumeFrom <= head && (resumeFrom == head || topic.ring.get(resumeFrom) != null)) {
+                subscriber.position = resumeFrom;
+            } else {
+                subscriber.resyncDue = true;
+            }
+        }
+        topic.subscribers.add(subscriber);
+        return topic;
+    }
+
+    // Method to report how many subscriptions are open
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        Message message = event.getMessage();
+        String data;
+        try {
+            data = messageWriter.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            logger.warn("Could not serialize {} for the live feed", event, e);
+            return;
+        }
+        String type = event.getType().name().toLowerCase(Locale.ROOT);
+        publish(globalTopic, type, data);
+        Topic accountTopic = message.getPostedBy() == null ? null : accountTopics.get(message.getPostedBy());
+        if (accountTopic != null) {
+            publish(accountTopic, type, data);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+        dispatcher.shutdownNow();
+        for (Subscriber subscriber : allSubscribers()) {
+            close(subscriber);
+        }
+    }
+
+    private void publish(Topic topic, String type, String data) {
+        topic.ring.publish(type, data);
+        for (Subscriber subscriber : topic.subscribers) {
+            schedule(subscriber);
+        }
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : allSubscribers()) {
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        }
+    }
+
+    // Drops every subscriber whose current send has been blocked for longer than the send timeout, and lends the
+    // pool a thread for each until its send returns
+    private void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : allSubscribers()) {
+            if (subscriber.sendState.get() == SENDING && now - subscriber.sendStartedAt > sendTimeoutNanos
+                    && subscriber.sendState.compareAndSet(SENDING, STALLED)) {
+                logger.warn("Dropping a live feed subscriber that has not taken an event for {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(now - subscriber.sendStartedAt));
+                resizeDispatcher(1);
+                unsubscribe(subscriber);
+            }
+        }
+    }
+
+    private void resizeDispatcher(int delta) {
+        synchronized (dispatcher) {
+            int size = dispatcher.getCorePoolSize() + delta;
+            // The core size may never exceed the maximum, so grow the maximum first and shrink it last
+            if (delta > 0) {
+                dispatcher.setMaximumPoolSize(size);
+                dispatcher.setCorePoolSize(size);
+            } else {
+                dispatcher.setCorePoolSize(size);
+                dispatcher.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    private List<Subscriber> allSubscribers() {
+        List<Subscriber> subscribers = new ArrayList<>(globalTopic.subscribers);
+        for (Topic topic : accountTopics.values()) {
+            subscribers.addAll(topic.subscribers);
+        }
+        return subscribers;
+    }
+
+    // At most one dispatch task per subscriber is queued or running; a blocked connection ties up only its own
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.closed && subscriber.draining.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> drain(subscriber));
+            } catch (RuntimeException e) {
+                // The dispatcher is shutting down
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    // Sends everything the subscriber has not seen yet
+    private void drain(Subscriber subscriber) {
+        FeedRing ring = subscriber.topic.ring;
+        try {
+            while (true) {
+                boolean sent = false;
+                if (subscriber.resyncDue) {
+                    subscriber.resyncDue = false;
+                    sendResync(subscriber, ring.head());
+                    sent = true;
+                }
+                while (subscriber.position < ring.head()) {
+                    FeedRing.Entry entry = ring.get(subscriber.position);
+                    if (entry == null) {
+                        // Overwritten before we got to it: this subscriber cannot keep up
+                        if (++subscriber.resyncs > maxResyncs) {
+                            close(subscriber);
+                            return;
+                        }
+                        sendResync(subscriber, ring.head());
+                        sent = true;
+                        continue;
+                    }
+                    send(subscriber, SseEmitter.event()
+                            .id(eventId(subscriber.topic, entry.sequence))
+                            .name(entry.type)
+                            .data(entry.data, MediaType.APPLICATION_JSON));
+                    subscriber.position++;
+                    sent = true;
+                }
+                subscriber.resyncs = 0;
+                if (subscriber.heartbeatDue) {
+                    subscriber.heartbeatDue = false;
+                    if (!sent) {
+                        send(subscriber, SseEmitter.event().comment("keepalive"));
+                    }
+                }
+
+                // Re-check after releasing, so an event published in between is not left waiting
+                subscriber.draining.set(false);
+                if (subscriber.closed || subscriber.position >= ring.head() && !subscriber.heartbeatDue
+                        || !subscriber.draining.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away, or the emitter was already completed
+            subscriber.draining.set(false);
+            close(subscriber);
+        }
+    }
+
+    // Tells the client it missed events and moves it to the newest one; its id lets a reconnect resume from there
+    private void sendResync(Subscriber subscriber, long head) throws IOException {
+        subscriber.position = head;
+        send(subscriber, SseEmitter.event()
+                .id(eventId(subscriber.topic, head - 1))
+                .name("resync")
+                .data("{}", MediaType.APPLICATION_JSON));
+    }
+
+    // Sends one event, marking the send in progress for dropStalledSubscribers. A send that was found stalled hands
+    // back the extra thread and fails, so the caller closes the subscriber.
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.sendStartedAt = System.nanoTime();
+        subscriber.sendState.set(SENDING);
+        boolean stalled;
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            stalled = !subscriber.sendState.compareAndSet(SENDING, IDLE);
+            if (stalled) {
+                resizeDispatcher(-1);
+            }
+        }
+        if (stalled) {
+            throw new IOException("Send blocked for longer than the send timeout");
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        unsubscribe(subscriber);
+        try {
+            subscriber.emitter.complete();
+        } catch (RuntimeException e) {
+            // Already completed
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscriber.closed) {
+            return;
+        }
+        synchronized (subscriber) {
+            if (subscriber.closed) {
+                return;
+            }
+            subscriber.closed = true;
+        }
+        subscriberCount.decrementAndGet();
+        if (subscriber.accountId == null) {
+            globalTopic.subscribers.remove(subscriber);
+        } else {
+            // Drop the account's topic with its last subscriber, so idle accounts cost nothing on publish
+            accountTopics.computeIfPresent(subscriber.accountId, (key, topic) -> {
+                topic.subscribers.remove(subscriber);
+                return topic.subscribers.isEmpty() ? null : topic;
+            });
+        }
+    }
+
+    private static String eventId(Topic topic, long sequence) {
+        return topic.epoch + ":" + sequence;
+    }
+
+    // Returns the sequence number in the event id, or -2 if the id is malformed or from another topic instance
+    private static long parseEventId(Topic topic, String eventId) {
+        String id = eventId.trim();
+        int separator = id.lastIndexOf(':');
+        if (separator < 0 || !id.substring(0, separator).equals(topic.epoch)) {
+            return -2;
+        }
+        try {
+            return Long.parseLong(id.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -2;
+        }
+    }
+
+    private static final class Topic {
+
+        final String epoch = PROCESS_EPOCH + "-" + Long.toString(topicCount.incrementAndGet(), 36);
+        final FeedRing ring;
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+        Topic(int ringCapacity) {
+            this.ring = new FeedRing(ringCapacity);
+        }
+    }
+
+    private static final class Subscriber {
+
+        final SseEmitter emitter;
+        final Integer accountId;
+        final AtomicBoolean draining = new AtomicBoolean();
+        // IDLE, SENDING, or STALLED once dropStalledSubscribers has given up on the send in progress
+        final AtomicInteger sendState = new AtomicInteger(IDLE);
+        volatile long sendStartedAt;
+        volatile Topic topic;
+        volatile boolean closed;
+        volatile boolean resyncDue;
+        volatile boolean heartbeatDue;
+
+        // Sequence number of the next event to send, and resyncs since the subscriber last caught up; only touched
+        // by the thread holding draining
+        long position;
+        int resyncs;
+
+        Subscriber(SseEmitter emitter, Integer accountId) {
+            this.emitter = emitter;
+            this.accountId = accountId;
+        }
+    }
+}
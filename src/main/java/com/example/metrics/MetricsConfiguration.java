@@ -0,0 +1,88 @@
+package com.example.metrics;
+
+import com.example.cache.BoundedCache;
+import com.example.feed.MessageFeed;
+import com.example.service.AccountService;
+import com.example.service.MessageService;
+import com.example.service.MessageWriteBehind;
+import com.example.service.TimelineService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Application metrics on top of what Spring Boot's actuator records by itself: "http.server.requests" per
+ * controller route, "spring.data.repository.invocations" per repository query method, the Hibernate statistics
+ * ("hibernate.*", including statement counts) and the Hikari pool ("hikaricp.connections.acquire" is the time
+ * spent waiting for a connection). All of it is scraped from /actuator/prometheus.
+ *
+ * The cache meters read the caches' own counters, so a scrape does not go through the (timed, transactional)
+ * service methods. The Hibernate statistics are not free: with hibernate.generate_statistics on, every statement,
+ * flush and cache access also updates shared counters, and each distinct query string gets its own statistics
+ * entry. Turn the property off to trade the "hibernate.*" meters for that overhead.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public ServiceMetricsAspect serviceMetricsAspect(MeterRegistry meterRegistry) {
+        return new ServiceMetricsAspect(meterRegistry);
+    }
+
+    // Size, hits, misses, evictions and expirations of the message, login credential and home timeline caches,
+    // tagged by cache name
+    @Bean
+    public MeterBinder cacheMetrics(MessageService messageService, AccountService accountService,
+                                    TimelineService timelineService) {
+        return meterRegistry -> {
+            bindCache("messages", messageService.getMessageCache(), meterRegistry);
+            bindCache("credentials", accountService.getCredentialsCache(), meterRegistry);
+            bindCache("timelines", timelineService.getTimelineCache(), meterRegistry);
+        };
+    }
+
+    // Depth of the write-behind queue, when write-behind posting is enabled
+    @Bean
+    @ConditionalOnProperty(name = "app.messages.write-behind.enabled", havingValue = "true")
+    public MeterBinder writeBehindMetrics(MessageWriteBehind messageWriteBehind) {
+        return meterRegistry -> Gauge.builder("app.messages.write_behind.queued", messageWriteBehind,
+                        MessageWriteBehind::getQueuedCount)
+                .description("Messages accepted but not yet written")
+                .register(meterRegistry);
+    }
+
+    // Open live feed connections
+    @Bean
+    public MeterBinder feedMetrics(MessageFeed messageFeed) {
+        return meterRegistry -> Gauge.builder("app.feed.subscribers", messageFeed, MessageFeed::getSubscriberCount)
+                .description("Open live message feed subscriptions")
+                .register(meterRegistry);
+    }
+
+    private static void bindCache(String name, BoundedCache<?, ?> cache, MeterRegistry meterRegistry) {
+        Gauge.builder("app.cache.size", cache, BoundedCache::size)
+                .description("Entries currently cached")
+                .tag("cache", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("app.cache.gets", cache, BoundedCache::hitCount)
+                .description("Cache lookups")
+                .tags("cache", name, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("app.cache.gets", cache, BoundedCache::missCount)
+                .description("Cache lookups")
+                .tags("cache", name, "result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("app.cache.evictions", cache, BoundedCache::evictionCount)
+                .description("Entries evicted to stay within the maximum size")
+                .tag("cache", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("app.cache.expirations", cache, BoundedCache::expirationCount)
+                .description("Entries dropped for being older than the time to live")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+}
@@ -1,8 +1,18 @@
 package com.example.repository;
 
+import com.example.dto.AccountCredentials;
+import com.example.dto.AccountView;
 import com.example.entity.Account;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Integer> {
@@ -12,4 +22,34 @@ public interface AccountRepository extends JpaRepository<Account, Integer> {
 
     // Checks if an account exists by username
     boolean existsByUsername(String username);
+
+    // Lists every account as an AccountView, without the password and without managing the entities
+    @Query("select new com.example.dto.AccountView(a.accountId, a.username) from Account a order by a.accountId")
+    List<AccountView> findAllViews();
+
+    // Finds one account as an AccountView
+    @Query("select new com.example.dto.AccountView(a.accountId, a.username) from Account a where a.accountId = :accountId")
+    Optional<AccountView> findViewById(@Param("accountId") Integer accountId);
+
+    // Finds the ID and stored password hash for a username, without loading the account
+    @Query("select new com.example.dto.AccountCredentials(a.accountId, a.password) from Account a where a.username = :username")
+    AccountCredentials findCredentialsByUsername(@Param("username") String username);
+
+    // Replaces the stored password hash of an account in a single statement
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Account a set a.password = :password where a.accountId = :accountId")
+    int updatePassword(@Param("accountId") Integer accountId, @Param("password") String password);
+
+    // Lists every account ID without loading the accounts themselves
+    @Query("select a.accountId from Account a")
+    List<Integer> findAllAccountIds();
+
+    // Lists every username without loading the accounts themselves
+    @Query("select a.username from Account a")
+    List<String> findAllUsernames();
+
+    // Returns which of the given account IDs exist, in a single IN query
+    @Query("select a.accountId from Account a where a.accountId in :accountIds")
+    List<Integer> findExistingAccountIds(@Param("accountIds") Collection<Integer> accountIds);
 }
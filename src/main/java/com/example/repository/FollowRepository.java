@@ -0,0 +1,25 @@
+package com.example.repository;
+
+import com.example.entity.Follow;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface FollowRepository extends JpaRepository<Follow, Follow.Key> {
+
+    // query method to read every follow as (followerId, followeeId) pairs, without managing them
+    @Query("select f.followerId, f.followeeId from Follow f")
+    List<Object[]> findAllPairs();
+
+    // query method to stop following in a single statement, returning the number of rows deleted
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Follow f where f.followerId = :followerId and f.followeeId = :followeeId")
+    int deleteFollow(@Param("followerId") Integer followerId, @Param("followeeId") Integer followeeId);
+}
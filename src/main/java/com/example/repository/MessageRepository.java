@@ -1,15 +1,120 @@
 package com.example.repository;
 
 import com.example.entity.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Integer> {
 
+    // Read queries select through this constructor expression: the results are plain, unmanaged Message objects,
+    // so reads skip the persistence context (no entity snapshots, no dirty checking) and serialize the same way
+    String SELECT_MESSAGE = "select new com.example.entity.Message(m.messageId, m.postedBy, m.messageText, " +
+            "m.timePostedEpoch) from Message m ";
+
     // query method to find messages postedBy account ID
-    List<Message> findByPostedBy(Integer accountId);
+    @Query(SELECT_MESSAGE + "where m.postedBy = :accountId")
+    List<Message> findByPostedBy(@Param("accountId") Integer accountId);
+
+    // query method to find a single message by ID without managing it
+    @Query(SELECT_MESSAGE + "where m.messageId = :messageId")
+    Optional<Message> findMessageById(@Param("messageId") Integer messageId);
+
+    // query method to read the given messages, in no particular order
+    @Query(SELECT_MESSAGE + "where m.messageId in :messageIds")
+    List<Message> findMessagesByIds(@Param("messageIds") Collection<Integer> messageIds);
+
+    // query method to read the ids of the newest messages posted by any of the given accounts
+    @Query("select m.messageId from Message m where m.postedBy in :accountIds order by m.messageId desc")
+    List<Integer> findIdsByPostedByIn(@Param("accountIds") Collection<Integer> accountIds, Pageable pageable);
+
+    // query method to read the ids of the messages posted by any of the given accounts before the given message ID,
+    // newest first
+    @Query("select m.messageId from Message m where m.postedBy in :accountIds and m.messageId < :messageId " +
+            "order by m.messageId desc")
+    List<Integer> findIdsByPostedByInBefore(@Param("accountIds") Collection<Integer> accountIds,
+                                            @Param("messageId") Integer messageId, Pageable pageable);
+
+    // query method to read every message in message ID order
+    @Query(SELECT_MESSAGE + "order by m.messageId")
+    List<Message> findAllByOrderByMessageIdAsc();
+
+    // query method to read a message's author and lock its row until the transaction ends, so the update or delete
+    // that follows sees the same row and concurrent writers of the message wait for each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select m.postedBy from Message m where m.messageId = :messageId")
+    Optional<Integer> lockPostedByById(@Param("messageId") Integer messageId);
+
+    // query method to change a message's text in a single statement, returning the number of rows updated
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Message m set m.messageText = :messageText where m.messageId = :messageId")
+    int updateMessageText(@Param("messageId") Integer messageId, @Param("messageText") String messageText);
+
+    // query method to delete a message in a single statement, returning the number of rows deleted
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Message m where m.messageId = :messageId")
+    int deleteByMessageId(@Param("messageId") Integer messageId);
+
+    // query method to read the first page of an account's messages, newest first. Messages without a
+    // timePostedEpoch sort after all dated ones, which is where H2 keeps nulls in a descending index anyway.
+    @Query(SELECT_MESSAGE + "where m.postedBy = :accountId order by m.timePostedEpoch desc nulls last, m.messageId desc")
+    List<Message> findByPostedByOrderByTimePostedEpochDescMessageIdDesc(@Param("accountId") Integer accountId,
+                                                                       Pageable pageable);
+
+    // query method to read the page of an account's messages that follows the given (timePostedEpoch, messageId)
+    // position, newest first; matches the (postedBy, timePostedEpoch desc, messageId desc) index
+    @Query(SELECT_MESSAGE + "where m.postedBy = :accountId and (m.timePostedEpoch < :timePostedEpoch " +
+            "or m.timePostedEpoch is null " +
+            "or (m.timePostedEpoch = :timePostedEpoch and m.messageId < :messageId)) " +
+            "order by m.timePostedEpoch desc nulls last, m.messageId desc")
+    List<Message> findByPostedByBefore(@Param("accountId") Integer accountId,
+                                       @Param("timePostedEpoch") Long timePostedEpoch,
+                                       @Param("messageId") Integer messageId,
+                                       Pageable pageable);
+
+    // query method to read the page of an account's messages that follows a position among its messages without
+    // a timePostedEpoch, which come last, in messageId order
+    @Query(SELECT_MESSAGE + "where m.postedBy = :accountId and m.timePostedEpoch is null and m.messageId < :messageId " +
+            "order by m.messageId desc")
+    List<Message> findUndatedByPostedByBefore(@Param("accountId") Integer accountId,
+                                              @Param("messageId") Integer messageId,
+                                              Pageable pageable);
+
+    // query method to read the first page of messages in message ID order (no count query is issued for a List)
+    @Query(SELECT_MESSAGE + "order by m.messageId")
+    List<Message> findAllByOrderByMessageIdAsc(Pageable pageable);
+
+    // query method to read the page of messages following the given message ID, seeking on the primary key
+    @Query(SELECT_MESSAGE + "where m.messageId > :messageId order by m.messageId")
+    List<Message> findByMessageIdGreaterThanOrderByMessageIdAsc(@Param("messageId") Integer messageId,
+                                                                Pageable pageable);
+
+    // query method to stream every message through a forward-only cursor. Must be consumed inside a transaction
+    // and closed afterwards.
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(SELECT_MESSAGE + "order by m.messageId")
+    Stream<Message> streamAllByOrderByMessageIdAsc();
 
 }
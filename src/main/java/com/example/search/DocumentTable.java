@@ -0,0 +1,142 @@
+package com.example.search;
+
+/**
+ * Per-message bookkeeping for the search index: the number of terms in the message (for length normalisation)
+ * and a version that is bumped every time the message is re-indexed, so postings of older text can be told apart.
+ *
+ * An open-addressing hash table with each entry's id, length and version side by side in one int array, so a
+ * lookup touches a single cache line. A removed message stays behind as a tombstone with a length of -1, so if
+ * its id is indexed again the version keeps counting up rather than matching postings left from before;
+ * tombstones are purged once no posting can refer to them. Not thread safe; MessageSearchIndex guards it with
+ * its lock.
+ */
+final class DocumentTable {
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final int REMOVED = -1;
+
+    // Entry i is table[3 * i] (message id), table[3 * i + 1] (length) and table[3 * i + 2] (version)
+    private int[] table;
+    private int capacity;
+    private int size;
+    private int occupied;
+
+    DocumentTable() {
+        allocate(1024);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Returns the position of the message's entry, or -1 if it is not indexed
+    int slot(int messageId) {
+        int slot = find(messageId);
+        return table[slot] == EMPTY || table[slot + 1] == REMOVED ? -1 : slot;
+    }
+
+    int lengthAt(int slot) {
+        return table[slot + 1];
+    }
+
+    int versionAt(int slot) {
+        return table[slot + 2];
+    }
+
+    // Returns the message's current version, or -1 if it is not indexed
+    int version(int messageId) {
+        int slot = slot(messageId);
+        return slot < 0 ? -1 : table[slot + 2];
+    }
+
+    int length(int messageId) {
+        int slot = slot(messageId);
+        return slot < 0 ? 0 : table[slot + 1];
+    }
+
+    // Records the message's new length, returning the version its postings should carry
+    int put(int messageId, int length) {
+        int slot = find(messageId);
+        if (table[slot] != EMPTY) {
+            if (table[slot + 1] == REMOVED) {
+                size++;
+            }
+            table[slot + 1] = length;
+            return ++table[slot + 2];
+        }
+        table[slot] = messageId;
+        table[slot + 1] = length;
+        table[slot + 2] = 0;
+        size++;
+        if (++occupied > capacity / 2) {
+            rehash(capacity * 2, true);
+        }
+        return 0;
+    }
+
+    // Removes the message, returning its length, or -1 if it was not indexed
+    int remove(int messageId) {
+        int slot = slot(messageId);
+        if (slot < 0) {
+            return -1;
+        }
+        int length = table[slot + 1];
+        table[slot + 1] = REMOVED;
+        size--;
+        return length;
+    }
+
+    // Drops the tombstones; only safe once every posting list has been compacted
+    void purgeRemoved() {
+        int newCapacity = 1024;
+        while (size > newCapacity / 2) {
+            newCapacity *= 2;
+        }
+        rehash(newCapacity, false);
+    }
+
+    void clear() {
+        allocate(1024);
+        size = 0;
+        occupied = 0;
+    }
+
+    // Returns the array index of the message's entry, or of the empty entry where it would go
+    private int find(int messageId) {
+        int mask = capacity - 1;
+        int index = hash(messageId) & mask;
+        while (table[3 * index] != EMPTY && table[3 * index] != messageId) {
+            index = (index + 1) & mask;
+        }
+        return 3 * index;
+    }
+
+    // Moves the entries, with or without the tombstones, into a table of the given capacity
+    private void rehash(int newCapacity, boolean keepRemoved) {
+        int[] oldTable = table;
+        allocate(newCapacity);
+        occupied = 0;
+        for (int i = 0; i < oldTable.length; i += 3) {
+            if (oldTable[i] != EMPTY && (keepRemoved || oldTable[i + 1] != REMOVED)) {
+                int slot = find(oldTable[i]);
+                System.arraycopy(oldTable, i, table, slot, 3);
+                occupied++;
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        table = new int[3 * newCapacity];
+        for (int i = 0; i < table.length; i += 3) {
+            table[i] = EMPTY;
+        }
+    }
+
+    // Message ids come from a sequence, so consecutive ids land in consecutive slots: walking a posting list then
+    // reads the table front to back instead of missing the cache on every entry. The high bits are folded in so
+    // ids that differ only above the mask still spread out.
+    private static int hash(int key) {
+        return key ^ (key >>> 16);
+    }
+}
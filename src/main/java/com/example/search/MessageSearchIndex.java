@@ -0,0 +1,281 @@
+package com.example.search;
+
+import com.example.entity.Message;
+import com.example.event.MessageEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over message text: each term maps to a compressed list of the messages containing it.
+ *
+ * Built from the message table once the application is up and kept current from MessageEvents, so it sees
+ * committed changes only. Text is split into lowercase runs of letters and digits; a search returns messages
+ * containing every query term, ranked by BM25 and then newest first.
+ */
+@Component
+public class MessageSearchIndex {
+
+    // BM25 parameters: how quickly repeated terms saturate, and how strongly long messages are penalised
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Terms longer than this are not indexed (they are almost always URLs or noise)
+    static final int MAX_TERM_LENGTH = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final DocumentTable documents = new DocumentTable();
+    private long totalLength;
+
+    // Documents updated or removed since the posting lists were last swept for stale entries
+    private int staleDocuments;
+
+    @Autowired
+    public MessageSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Indexes every existing message once the application (and its seed data) is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+            staleDocuments = 0;
+            RowCallbackHandler indexRow = row -> addDocument(row.getInt(1), row.getString(2));
+            jdbcTemplate.query("select messageId, messageText from message", indexRow);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        Message message = event.getMessage();
+        if (event.getType() == MessageEvent.Type.DELETED) {
+            remove(message.getMessageId());
+        } else {
+            index(message.getMessageId(), message.getMessageText());
+        }
+    }
+
+    // Method to add a message to the index, or replace the text it was indexed with
+    public void index(int messageId, String messageText) {
+        lock.writeLock().lock();
+        try {
+            int previousLength = documents.length(messageId);
+            if (documents.version(messageId) >= 0) {
+                totalLength -= previousLength;
+                staleDocuments++;
+            }
+            addDocument(messageId, messageText);
+            sweepIfStale();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Method to drop a message from the index; its postings are skipped from now on and dropped on the next sweep
+    public void remove(int messageId) {
+        lock.writeLock().lock();
+        try {
+            int length = documents.remove(messageId);
+            if (length >= 0) {
+                totalLength -= length;
+                staleDocuments++;
+                sweepIfStale();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Method to report how many messages are indexed
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the messages containing every term of the query.
+     * @param query free text, tokenized the same way as message text
+     * @param maxHits how many of the best matches to return
+     * @return message ids, best match first; empty if the query has no terms or nothing matches
+     */
+    public List<Integer> search(String query, int maxHits) {
+        Map<String, Integer> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || maxHits < 1) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[queryTerms.size()];
+            int i = 0;
+            for (String term : queryTerms.keySet()) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    return List.of();
+                }
+                lists[i++] = list;
+            }
+            // Drive the intersection from the rarest term, so the common ones are only skipped through
+            Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+            double[] idf = new double[lists.length];
+            int documentCount = documents.size();
+            for (i = 0; i < lists.length; i++) {
+                int df = Math.min(lists[i].size(), documentCount);
+                idf[i] = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+            }
+            double averageLength = documentCount == 0 ? 1 : (double) totalLength / documentCount;
+
+            PriorityQueue<Hit> best = new PriorityQueue<>(Hit.WORST_FIRST);
+            PostingList.Cursor[] cursors = new PostingList.Cursor[lists.length];
+            for (i = 0; i < lists.length; i++) {
+                cursors[i] = lists[i].cursor(documents);
+            }
+            boolean more = cursors[0].next();
+            while (more) {
+                int target = cursors[0].messageId;
+                int mismatch = -1;
+                for (i = 1; i < cursors.length; i++) {
+                    if (!cursors[i].advance(target)) {
+                        return ranked(best);
+                    }
+                    if (cursors[i].messageId != target) {
+                        mismatch = i;
+                        break;
+                    }
+                }
+                if (mismatch >= 0) {
+                    more = cursors[0].advance(cursors[mismatch].messageId);
+                    continue;
+                }
+
+                double norm = K1 * (1 - B + B * cursors[0].documentLength / averageLength);
+                double score = 0;
+                for (i = 0; i < cursors.length; i++) {
+                    int tf = cursors[i].termFrequency;
+                    score += idf[i] * tf * (K1 + 1) / (tf + norm);
+                }
+                if (best.size() < maxHits) {
+                    best.add(new Hit(target, score));
+                } else {
+                    // Ids only increase, so a later message with the same score as the worst kept hit beats it
+                    Hit worst = best.peek();
+                    if (score >= worst.score) {
+                        best.poll();
+                        best.add(new Hit(target, score));
+                    }
+                }
+                more = cursors[0].next();
+            }
+            return ranked(best);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into lowercase terms, runs of letters and digits, with how often each occurs.
+     * @param text message text or a query; may be null
+     * @return term frequencies, in order of first occurrence
+     */
+    static Map<String, Integer> tokenize(String text) {
+        Map<String, Integer> terms = new LinkedHashMap<>();
+        if (text == null) {
+            return terms;
+        }
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            int c = i < text.length() ? text.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.appendCodePoint(Character.toLowerCase(c));
+                if (Character.isSupplementaryCodePoint(c)) {
+                    i++;
+                }
+            } else if (term.length() > 0) {
+                if (term.length() <= MAX_TERM_LENGTH) {
+                    terms.merge(term.toString(), 1, Integer::sum);
+                }
+                term.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    // Called with the write lock held
+    private void addDocument(int messageId, String messageText) {
+        Map<String, Integer> terms = tokenize(messageText);
+        int length = 0;
+        for (int frequency : terms.values()) {
+            length += frequency;
+        }
+        int version = documents.put(messageId, length);
+        totalLength += length;
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new PostingList())
+                    .add(messageId, term.getValue(), version, documents);
+        }
+    }
+
+    // Once a quarter of the index may be stale, rewrites every list without the dead postings; called with the
+    // write lock held
+    private void sweepIfStale() {
+        if (staleDocuments < Math.max(1000, documents.size() / 4)) {
+            return;
+        }
+        postings.values().removeIf(list -> {
+            list.compact(documents);
+            return list.size() == 0;
+        });
+        documents.purgeRemoved();
+        staleDocuments = 0;
+    }
+
+    private static List<Integer> ranked(PriorityQueue<Hit> best) {
+        List<Integer> messageIds = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            messageIds.add(best.poll().messageId);
+        }
+        Collections.reverse(messageIds);
+        return messageIds;
+    }
+
+    private static final class Hit {
+
+        // Lower score first, and among equal scores the older message first
+        static final Comparator<Hit> WORST_FIRST = Comparator.<Hit>comparingDouble(hit -> hit.score)
+                .thenComparingInt(hit -> hit.messageId);
+
+        final int messageId;
+        final double score;
+
+        Hit(int messageId, double score) {
+            this.messageId = messageId;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.search;
+
+import java.util.Arrays;
+
+/**
+ * The postings of one term: (messageId, term frequency, document version) triples in ascending messageId order.
+ *
+ * Postings are stored delta-encoded as variable-length integers, so a posting for a message posted shortly after
+ * the previous one usually takes three bytes. Ids normally arrive in ascending order and are appended in place;
+ * one that arrives out of order (transactions commit in a different order than they drew their ids) goes into a
+ * small sorted tail, which is merged into the encoded part when it fills up. Postings whose document has since
+ * been updated or deleted are dropped at that point too.
+ *
+ * Not thread safe; MessageSearchIndex guards every list with its lock.
+ */
+final class PostingList {
+
+    private static final int TAIL_CAPACITY = 64;
+
+    private byte[] data = new byte[8];
+    private int length;
+    private int count;
+    private int lastId;
+
+    // Out-of-order postings, sorted by id: tail[3 * i] is the id, then term frequency and version
+    private int[] tail;
+    private int tailSize;
+
+    void add(int messageId, int termFrequency, int version, DocumentTable documents) {
+        if (tailSize == 0 && (count == 0 || messageId > lastId)) {
+            append(messageId, termFrequency, version);
+            return;
+        }
+        if (tail == null) {
+            tail = new int[3 * TAIL_CAPACITY];
+        }
+        int position = tailSize;
+        while (position > 0 && tail[3 * (position - 1)] > messageId) {
+            position--;
+        }
+        System.arraycopy(tail, 3 * position, tail, 3 * position + 3, 3 * (tailSize - position));
+        tail[3 * position] = messageId;
+        tail[3 * position + 1] = termFrequency;
+        tail[3 * position + 2] = version;
+        tailSize++;
+        if (tailSize == TAIL_CAPACITY) {
+            compact(documents);
+        }
+    }
+
+    // Number of postings, counting ones that are stale but not yet dropped; used as the document frequency
+    int size() {
+        return count + tailSize;
+    }
+
+    // Rewrites the list with the tail merged in and stale postings dropped
+    void compact(DocumentTable documents) {
+        int[] live = new int[3 * size()];
+        int liveCount = 0;
+        Cursor cursor = cursor(documents);
+        while (cursor.next()) {
+            live[3 * liveCount] = cursor.messageId;
+            live[3 * liveCount + 1] = cursor.termFrequency;
+            live[3 * liveCount + 2] = cursor.version;
+            liveCount++;
+        }
+        data = new byte[(int) Math.max(8, (long) length * liveCount / Math.max(1, count) + 3L * tailSize)];
+        length = 0;
+        count = 0;
+        tail = null;
+        tailSize = 0;
+        for (int i = 0; i < liveCount; i++) {
+            append(live[3 * i], live[3 * i + 1], live[3 * i + 2]);
+        }
+    }
+
+    Cursor cursor(DocumentTable documents) {
+        return new Cursor(documents);
+    }
+
+    private void append(int messageId, int termFrequency, int version) {
+        if (data.length - length < 15) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 15));
+        }
+        writeVarInt(messageId - (count == 0 ? 0 : lastId));
+        writeVarInt(termFrequency);
+        writeVarInt(version);
+        lastId = messageId;
+        count++;
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * Walks the live postings in ascending messageId order, merging the encoded part with the tail and skipping
+     * postings whose document has been updated or deleted since. Also picks up the document's length from the
+     * same lookup.
+     */
+    final class Cursor {
+
+        private final DocumentTable documents;
+        private int offset;
+        private int decoded;
+        private int encodedId;
+        private int tailIndex;
+
+        int messageId;
+        int termFrequency;
+        int version;
+        int documentLength;
+
+        private Cursor(DocumentTable documents) {
+            this.documents = documents;
+            this.messageId = Integer.MIN_VALUE;
+        }
+
+        boolean next() {
+            while (true) {
+                boolean encodedLeft = decoded < count;
+                boolean tailLeft = tailIndex < tailSize;
+                if (!encodedLeft && !tailLeft) {
+                    return false;
+                }
+                if (encodedLeft && (!tailLeft || peekEncodedId() <= tail[3 * tailIndex])) {
+                    messageId = encodedId + readVarInt();
+                    encodedId = messageId;
+                    termFrequency = readVarInt();
+                    version = readVarInt();
+                    decoded++;
+                } else {
+                    messageId = tail[3 * tailIndex];
+                    termFrequency = tail[3 * tailIndex + 1];
+                    version = tail[3 * tailIndex + 2];
+                    tailIndex++;
+                }
+                int slot = documents.slot(messageId);
+                if (slot >= 0 && documents.versionAt(slot) == version) {
+                    documentLength = documents.lengthAt(slot);
+                    return true;
+                }
+            }
+        }
+
+        // Moves to the first live posting with an id of at least target, returning false when there is none
+        boolean advance(int target) {
+            while (messageId < target) {
+                if (!next()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int peekEncodedId() {
+            int saved = offset;
+            int id = encodedId + readVarInt();
+            offset = saved;
+            return id;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
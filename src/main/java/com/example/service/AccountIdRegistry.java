@@ -0,0 +1,112 @@
+package com.example.service;
+
+import com.example.repository.AccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory bitmap of account ids known to exist, so posting a message can skip the account lookup.
+ *
+ * A set bit is authoritative as long as accounts are only removed through AccountService. A clear bit only means
+ * "not known yet" (for example rows inserted straight into the database), so callers fall back to the database
+ * on a miss and record what they find. An account being deleted is forgotten before its delete commits, and
+ * nothing may add it back while the delete is in flight, since the database still shows the row until then.
+ */
+@Component
+public class AccountIdRegistry {
+
+    private final AccountRepository accountRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet accountIds = new BitSet();
+    // Ids whose delete has not finished yet
+    private final BitSet removing = new BitSet();
+
+    @Autowired
+    public AccountIdRegistry(AccountRepository accountRepository) {
+        this.accountRepository = accountRepository;
+    }
+
+    // Loads every existing account id once the application (and its seed data) is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (Integer accountId : accountRepository.findAllAccountIds()) {
+            add(accountId);
+        }
+    }
+
+    // Method to check whether an account id is known to exist
+    public boolean contains(Integer accountId) {
+        if (accountId == null || accountId < 0) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return accountIds.get(accountId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Method to check whether an account id is being deleted, in which case the database must not be asked either
+    public boolean isRemoving(Integer accountId) {
+        if (accountId == null || accountId < 0) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return removing.get(accountId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Method to record an account id that exists; ignored while the account is being deleted
+    public void add(Integer accountId) {
+        if (accountId == null || accountId < 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!removing.get(accountId)) {
+                accountIds.set(accountId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Method to forget an account id whose delete is about to run, until finishRemove settles it
+    public void startRemove(Integer accountId) {
+        if (accountId == null || accountId < 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            accountIds.clear(accountId);
+            removing.set(accountId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Method to settle a delete once its transaction has finished; a rolled back delete restores the id
+    public void finishRemove(Integer accountId, boolean committed) {
+        if (accountId == null || accountId < 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removing.clear(accountId);
+            if (!committed) {
+                accountIds.set(accountId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -1,29 +1,134 @@
 package com.example.service;
 
+import com.example.cache.BoundedCache;
+import com.example.dto.AccountCredentials;
+import com.example.dto.AccountView;
 import com.example.entity.Account;
+import com.example.event.AccountEvent;
+import com.example.exception.DuplicateUsernameException;
 import com.example.repository.AccountRepository;
+import org.hibernate.JDBCException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Service class for managing accounts.
+ * Service class for managing accounts. Methods run in a read-only transaction unless marked otherwise (which
+ * puts the Hibernate session in FlushMode.MANUAL); writes run in a single read-write transaction. Password
+ * hashing is kept outside transactions where possible so a pooled connection is not held while it runs.
  */
 @Service
+@Transactional(readOnly = true)
 public class AccountService {
 
     private final AccountRepository accountRepository;
+    private final AccountIdRegistry accountIdRegistry;
+    private final UsernameRegistry usernameRegistry;
+    private final PasswordHasher passwordHasher;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ResourceVersions resourceVersions;
+
+    // Login lookups by username; unknown usernames are cached too, as null
+    private final BoundedCache<String, AccountCredentials> credentialsCache;
+
+    // Checked against when a username does not exist, so failed logins cost the same either way
+    private final String unknownUserHash;
+
+    // SQLSTATE reported for a unique constraint violation
+    private static final String UNIQUE_VIOLATION = "23505";
 
     @Autowired
-    public AccountService(AccountRepository accountRepository) {
+    public AccountService(AccountRepository accountRepository, AccountIdRegistry accountIdRegistry,
+                          UsernameRegistry usernameRegistry, PasswordHasher passwordHasher,
+                          ApplicationEventPublisher eventPublisher, ResourceVersions resourceVersions,
+                          @Value("${app.cache.credentials.maximum-size:10000}") int cacheMaximumSize,
+                          @Value("${app.cache.credentials.ttl-seconds:300}") long cacheTtlSeconds) {
         this.accountRepository = accountRepository;
+        this.accountIdRegistry = accountIdRegistry;
+        this.usernameRegistry = usernameRegistry;
+        this.passwordHasher = passwordHasher;
+        this.eventPublisher = eventPublisher;
+        this.resourceVersions = resourceVersions;
+        this.credentialsCache = new BoundedCache<>(cacheMaximumSize, cacheTtlSeconds, TimeUnit.SECONDS);
+        this.unknownUserHash = passwordHasher.hash("unknown user");
     }
 
-    // Method to create a new account
+    // Method to create a new account. The unique index on username is what rejects duplicates; usernames we
+    // already know are taken are turned away before reaching the database. The insert is the only statement and
+    // runs in its own transaction, after the password has been hashed.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Account createAccount(Account account) {
-        return accountRepository.save(account);
+        // Validate username and password
+        validateUsername(account.getUsername());
+        validatePassword(account.getPassword());
+        if (usernameRegistry.contains(account.getUsername())) {
+            throw new DuplicateUsernameException(account.getUsername());
+        }
+
+        // Only a salted hash of the password is stored
+        account.setPassword(passwordHasher.hash(account.getPassword()));
+        Account savedAccount = saveUnique(account);
+        accountIdRegistry.add(savedAccount.getAccountId());
+        usernameRegistry.add(savedAccount.getUsername());
+        credentialsCache.invalidate(savedAccount.getUsername());
+        eventPublisher.publishEvent(new AccountEvent(AccountEvent.Type.CREATED, savedAccount.getAccountId(),
+                savedAccount.getUsername(), savedAccount.getPassword()));
+        return savedAccount;
+    }
+
+    // Method to verify a login, returning the account ID, or null if the username or password is wrong. The
+    // credentials lookup (on a cache miss) and the occasional rehash each run in their own short transaction.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Integer authenticate(String username, String password) {
+        if (username == null || password == null) {
+            return null;
+        }
+        AccountCredentials credentials = credentialsCache.get(username, accountRepository::findCredentialsByUsername);
+        if (credentials == null) {
+            passwordHasher.matches(password, unknownUserHash);
+            return null;
+        }
+        if (!passwordHasher.matches(password, credentials.getPasswordHash())) {
+            return null;
+        }
+
+        // Upgrade plaintext (seeded) passwords and hashes made at an old cost now that we know the password
+        if (passwordHasher.needsRehash(credentials.getPasswordHash())) {
+            String passwordHash = passwordHasher.hash(password);
+            accountRepository.updatePassword(credentials.getAccountId(), passwordHash);
+            credentialsCache.invalidate(username);
+            eventPublisher.publishEvent(new AccountEvent(AccountEvent.Type.UPDATED, credentials.getAccountId(),
+                    username, passwordHash));
+        }
+        return credentials.getAccountId();
+    }
+
+    // Method to expose the credentials cache, so its size and counters can be bound to meters once at startup
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BoundedCache<?, ?> getCredentialsCache() {
+        return credentialsCache;
+    }
+
+    // Flushes the insert/update straight away so a duplicate username surfaces here, as a DuplicateUsernameException
+    private Account saveUnique(Account account) {
+        try {
+            return accountRepository.saveAndFlush(account);
+        } catch (DataIntegrityViolationException e) {
+            if (e.getCause() instanceof JDBCException
+                    && UNIQUE_VIOLATION.equals(((JDBCException) e.getCause()).getSQLState())) {
+                usernameRegistry.add(account.getUsername());
+                throw new DuplicateUsernameException(account.getUsername(), e);
+            }
+            throw e;
+        }
     }
 
     // Method to retrieve an account by username
@@ -31,42 +136,90 @@ public class AccountService {
         return accountRepository.findByUsername(username);
     }
     
-    // Method to retrieve all accounts
-    public List<Account> getAllAccounts() {
-        return accountRepository.findAll();
+    // Method to retrieve all accounts, without their passwords
+    public List<AccountView> getAllAccounts() {
+        return accountRepository.findAllViews();
     }
 
-    // Method to retrieve an account by ID
-    public Account getAccountById(Integer id) {
-        Optional<Account> accountOptional = accountRepository.findById(id);
-        return accountOptional.orElse(null);
+    // Method to get an account's current ETag, from memory, for conditional requests
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String getAccountETag(Integer id) {
+        return resourceVersions.accountETag(id);
+    }
+
+    // Method to retrieve an account by ID, without its password
+    public AccountView getAccountById(Integer id) {
+        return accountRepository.findViewById(id).orElse(null);
     }
 
-    // Method to update an account by ID
+    // Method to update an account by ID. The username is validated as on registration; the password is optional,
+    // and the stored hash is kept when none is sent.
+    @Transactional
     public Account updateAccount(Integer id, Account updatedAccount) {
+        validateUsername(updatedAccount.getUsername());
+        if (updatedAccount.getPassword() != null) {
+            validatePassword(updatedAccount.getPassword());
+        }
         Optional<Account> accountOptional = accountRepository.findById(id);
         if (accountOptional.isPresent()) {
             Account existingAccount = accountOptional.get();
+            String previousUsername = existingAccount.getUsername();
             existingAccount.setUsername(updatedAccount.getUsername());
-            existingAccount.setPassword(updatedAccount.getPassword());
-            return accountRepository.save(existingAccount);
+            if (updatedAccount.getPassword() != null) {
+                existingAccount.setPassword(passwordHasher.hash(updatedAccount.getPassword()));
+            }
+            Account savedAccount = saveUnique(existingAccount);
+            AfterCommit.run(() -> {
+                if (!savedAccount.getUsername().equals(previousUsername)) {
+                    usernameRegistry.remove(previousUsername);
+                    usernameRegistry.add(savedAccount.getUsername());
+                }
+                credentialsCache.invalidate(previousUsername);
+                credentialsCache.invalidate(savedAccount.getUsername());
+            });
+            eventPublisher.publishEvent(new AccountEvent(AccountEvent.Type.UPDATED, savedAccount.getAccountId(),
+                    savedAccount.getUsername(), savedAccount.getPassword()));
+            return savedAccount;
         } else {
             return null;
         }
     }
 
     // Method to delete an account by ID
+    @Transactional
     public boolean deleteAccountById(Integer id) {
-        if (accountRepository.existsById(id)) {
-            accountRepository.deleteById(id);
+        Optional<Account> accountOptional = accountRepository.findById(id);
+        if (accountOptional.isPresent()) {
+            String username = accountOptional.get().getUsername();
+            // Forget the id before the delete commits, so no message is accepted for the account once it is gone
+            accountIdRegistry.startRemove(id);
+            AfterCommit.runAfterCompletion(committed -> accountIdRegistry.finishRemove(id, committed));
+            accountRepository.delete(accountOptional.get());
+            AfterCommit.run(() -> {
+                usernameRegistry.remove(username);
+                credentialsCache.invalidate(username);
+            });
+            eventPublisher.publishEvent(new AccountEvent(AccountEvent.Type.DELETED, id, username, null));
             return true;
         } else {
             return false;
         }
     }
 
+    private static void validateUsername(String username) {
+        if (username == null || username.trim().isEmpty()) {
+            throw new IllegalArgumentException("Username cannot be blank.");
+        }
+    }
+
+    private static void validatePassword(String password) {
+        if (password == null || password.length() < 4) {
+            throw new IllegalArgumentException("Password must be at least 4 characters long.");
+        }
+    }
+
     public boolean existsByUsername(String username) {
-        return accountRepository.existsByUsername(username);
+        return usernameRegistry.contains(username) || accountRepository.existsByUsername(username);
     }
     
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.example.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * Defers in-memory side effects (cache invalidation, registry updates) of a write until its transaction commits,
+ * so a rolled back write leaves them untouched and readers never re-cache the pre-commit state. An effect that has
+ * to happen before the commit can be settled with runAfterCompletion instead.
+ */
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    // Runs the action once the current transaction commits, or straight away when there is no transaction
+    static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Runs the action once the current transaction has finished, telling it whether it committed, or straight away
+    // when there is no transaction
+    static void runAfterCompletion(Consumer<Boolean> action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            action.accept(true);
+        }
+    }
+}
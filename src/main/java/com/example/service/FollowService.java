@@ -0,0 +1,175 @@
+package com.example.service;
+
+import com.example.entity.Follow;
+import com.example.event.AccountEvent;
+import com.example.event.FollowEvent;
+import com.example.repository.AccountRepository;
+import com.example.repository.FollowRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class for the follow graph. Follows are stored in the follow table and mirrored in memory in both
+ * directions, so fanning a new message out to its author's followers and building a home timeline never query
+ * the table. The in-memory graph is loaded once the application is up and changed only after a write commits.
+ * Its readers run outside any transaction, so a fan-out after each new message never checks out a connection.
+ */
+@Service
+@Transactional(readOnly = true)
+public class FollowService {
+
+    private final FollowRepository followRepository;
+    private final AccountRepository accountRepository;
+    private final AccountIdRegistry accountIdRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // followerId -> the accounts it follows, and followeeId -> the accounts following it
+    private final Map<Integer, Set<Integer>> following = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> followers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FollowService(FollowRepository followRepository, AccountRepository accountRepository,
+                         AccountIdRegistry accountIdRegistry, ApplicationEventPublisher eventPublisher) {
+        this.followRepository = followRepository;
+        this.accountRepository = accountRepository;
+        this.accountIdRegistry = accountIdRegistry;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Loads every existing follow once the application (and its seed data) is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (Object[] pair : followRepository.findAllPairs()) {
+            addEdge((Integer) pair[0], (Integer) pair[1]);
+        }
+    }
+
+    // Method to make one account follow another, returning false if it already did
+    @Transactional
+    public boolean follow(Integer followerId, Integer followeeId) {
+        if (followerId == null || followeeId == null) {
+            throw new IllegalArgumentException("User not found.");
+        }
+        if (followerId.equals(followeeId)) {
+            throw new IllegalArgumentException("Accounts cannot follow themselves.");
+        }
+        if (!accountExists(followerId) || !accountExists(followeeId)) {
+            throw new IllegalArgumentException("User not found.");
+        }
+        if (followRepository.existsById(new Follow.Key(followerId, followeeId))) {
+            return false;
+        }
+        followRepository.save(new Follow(followerId, followeeId));
+        AfterCommit.run(() -> addEdge(followerId, followeeId));
+        eventPublisher.publishEvent(new FollowEvent(FollowEvent.Type.FOLLOWED, followerId, followeeId));
+        return true;
+    }
+
+    // Method to stop following, returning the number of rows deleted (0 if the account was not following)
+    @Transactional
+    public int unfollow(Integer followerId, Integer followeeId) {
+        int rowsDeleted = followRepository.deleteFollow(followerId, followeeId);
+        if (rowsDeleted > 0) {
+            AfterCommit.run(() -> removeEdge(followerId, followeeId));
+            eventPublisher.publishEvent(new FollowEvent(FollowEvent.Type.UNFOLLOWED, followerId, followeeId));
+        }
+        return rowsDeleted;
+    }
+
+    // Method to list the accounts the given account follows
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Set<Integer> getFolloweeIds(Integer accountId) {
+        Set<Integer> followeeIds = following.get(accountId);
+        return followeeIds == null ? Collections.emptySet() : Collections.unmodifiableSet(followeeIds);
+    }
+
+    // Method to list the accounts following the given account
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Set<Integer> getFollowerIds(Integer accountId) {
+        Set<Integer> followerIds = followers.get(accountId);
+        return followerIds == null ? Collections.emptySet() : Collections.unmodifiableSet(followerIds);
+    }
+
+    // Method to list, in id order, the accounts the given account follows
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Integer> listFollowing(Integer accountId) {
+        return sorted(getFolloweeIds(accountId));
+    }
+
+    // Method to list, in id order, the accounts following the given account
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Integer> listFollowers(Integer accountId) {
+        return sorted(getFollowerIds(accountId));
+    }
+
+    // Method to count the accounts following the given account
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int getFollowerCount(Integer accountId) {
+        Set<Integer> followerIds = followers.get(accountId);
+        return followerIds == null ? 0 : followerIds.size();
+    }
+
+    // The follow table cascades account deletes; drop the account's edges here to match
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountEvent(AccountEvent event) {
+        if (event.getType() != AccountEvent.Type.DELETED) {
+            return;
+        }
+        Integer accountId = event.getAccountId();
+        for (Integer followeeId : new ArrayList<>(getFolloweeIds(accountId))) {
+            removeEdge(accountId, followeeId);
+        }
+        for (Integer followerId : new ArrayList<>(getFollowerIds(accountId))) {
+            removeEdge(followerId, accountId);
+        }
+    }
+
+    // Known account ids are answered from memory; anything else is a primary key probe
+    private boolean accountExists(Integer accountId) {
+        if (accountIdRegistry.contains(accountId)) {
+            return true;
+        }
+        // An account being deleted still shows in the database until its delete commits
+        if (!accountIdRegistry.isRemoving(accountId) && accountRepository.existsById(accountId)) {
+            accountIdRegistry.add(accountId);
+            return true;
+        }
+        return false;
+    }
+
+    private static List<Integer> sorted(Set<Integer> ids) {
+        List<Integer> sortedIds = new ArrayList<>(ids);
+        Collections.sort(sortedIds);
+        return sortedIds;
+    }
+
+    private void addEdge(Integer followerId, Integer followeeId) {
+        following.computeIfAbsent(followerId, key -> ConcurrentHashMap.newKeySet()).add(followeeId);
+        followers.computeIfAbsent(followeeId, key -> ConcurrentHashMap.newKeySet()).add(followerId);
+    }
+
+    private void removeEdge(Integer followerId, Integer followeeId) {
+        Set<Integer> followeeIds = following.get(followerId);
+        if (followeeIds != null) {
+            followeeIds.remove(followeeId);
+        }
+        Set<Integer> followerIds = followers.get(followeeId);
+        if (followerIds != null) {
+            followerIds.remove(followerId);
+        }
+    }
+
+}
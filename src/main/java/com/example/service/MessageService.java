@@ -1,96 +1,464 @@
 package com.example.service;
 
-import com.example.entity.Account;
+import com.example.cache.BoundedCache;
+import com.example.changes.MessageChangeLog;
+import com.example.dto.MessageBatchResult;
+import com.example.dto.MessageChange;
+import com.example.dto.MessageChangePage;
+import com.example.dto.MessagePage;
 import com.example.entity.Message;
+import com.example.event.MessageEvent;
+import com.example.exception.PreconditionFailedException;
 import com.example.repository.AccountRepository;
 import com.example.repository.MessageRepository;
+import com.example.search.MessageSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
- * Service class for managing messages.
+ * Service class for managing messages. Methods run in a read-only transaction unless marked otherwise, which
+ * puts the Hibernate session in FlushMode.MANUAL so reads are never dirty checked or flushed; each write runs in
+ * a single read-write transaction.
  */
 @Service
+@Transactional(readOnly = true)
 public class MessageService {
 
+    // Page size used when a client asks for a page without giving a limit, and the largest page we will serve
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    // Largest number of messages accepted by one batch request
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    // Search results can be paged through up to this many matches
+    public static final int MAX_SEARCH_RESULTS = 10000;
+
     private final MessageRepository messageRepository;
     private final AccountRepository accountRepository;
+    private final AccountIdRegistry accountIdRegistry;
+    private final MessageSearchIndex messageSearchIndex;
+    private final MessageChangeLog messageChangeLog;
+    private final ResourceVersions resourceVersions;
+    private final ObjectWriter messageWriter;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Read-through cache for getMessageById; missing ids are cached too, as null
+    private final BoundedCache<Integer, Message> messageCache;
+
+    // Set when write-behind posting is enabled (app.messages.write-behind.enabled), otherwise null
+    private final MessageWriteBehind messageWriteBehind;
 
     @Autowired
-    public MessageService(MessageRepository messageRepository, AccountRepository accountRepository) {
+    public MessageService(MessageRepository messageRepository, AccountRepository accountRepository,
+                          AccountIdRegistry accountIdRegistry, MessageSearchIndex messageSearchIndex,
+                          MessageChangeLog messageChangeLog, ResourceVersions resourceVersions, ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher, Optional<MessageWriteBehind> messageWriteBehind,
+                          @Value("${app.cache.messages.maximum-size:10000}") int cacheMaximumSize,
+                          @Value("${app.cache.messages.ttl-seconds:60}") long cacheTtlSeconds) {
         this.messageRepository = messageRepository;
         this.accountRepository = accountRepository;
+        this.accountIdRegistry = accountIdRegistry;
+        this.messageSearchIndex = messageSearchIndex;
+        this.messageChangeLog = messageChangeLog;
+        this.resourceVersions = resourceVersions;
+        this.messageWriter = objectMapper.writerFor(Message.class);
+        this.eventPublisher = eventPublisher;
+        this.messageCache = new BoundedCache<>(cacheMaximumSize, cacheTtlSeconds, TimeUnit.SECONDS);
+        this.messageWriteBehind = messageWriteBehind.orElse(null);
     }
 
-    // Method to create a new message
+    // Method to create a new message. The insert is the only write and commits in the repository's own
+    // transaction; with write-behind enabled the message is queued instead and no transaction is needed at all
+    // (its CREATED event is published once it is written).
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Message createMessage(Message message) {
         // Validate message text
-        if (message.getMessageText() == null || message.getMessageText().trim().isEmpty()) {
+        validateMessageText(message.getMessageText());
+
+        // Validate user existence
+        if (!accountExists(message.getPostedBy())) {
+            throw new IllegalArgumentException("User not found.");
+        }
+
+        if (messageWriteBehind != null) {
+            Message queuedMessage = messageWriteBehind.enqueue(message);
+            messageCache.invalidate(queuedMessage.getMessageId());
+            return queuedMessage;
+        }
+
+        // Save and return the message, dropping any cached "not found" for its id
+        Message savedMessage = messageRepository.save(message);
+        AfterCommit.run(() -> messageCache.invalidate(savedMessage.getMessageId()));
+        eventPublisher.publishEvent(MessageEvent.created(savedMessage));
+        return savedMessage;
+    }
+
+    // Method to create many messages at once. Every item is validated up front, with all unknown authors checked in a
+    // single query, and the valid ones are inserted together so Hibernate can send them as JDBC batches. Returns one
+    // result per item, in request order.
+    @Transactional
+    public List<MessageBatchResult> createMessages(List<Message> messages) {
+        if (messages == null || messages.isEmpty()) {
+            throw new IllegalArgumentException("Batch cannot be empty.");
+        }
+        if (messages.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch cannot exceed " + MAX_BATCH_SIZE + " messages.");
+        }
+
+        // Resolve every author we do not already know about with one IN query
+        Set<Integer> unknownAuthors = new HashSet<>();
+        for (Message message : messages) {
+            if (message != null && message.getPostedBy() != null && !accountIdRegistry.contains(message.getPostedBy())) {
+                unknownAuthors.add(message.getPostedBy());
+            }
+        }
+        if (!unknownAuthors.isEmpty()) {
+            for (Integer accountId : accountRepository.findExistingAccountIds(unknownAuthors)) {
+                accountIdRegistry.add(accountId);
+            }
+        }
+
+        MessageBatchResult[] results = new MessageBatchResult[messages.size()];
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        List<Message> accepted = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            try {
+                if (message == null) {
+                    throw new IllegalArgumentException("Message cannot be null.");
+                }
+                validateMessageText(message.getMessageText());
+                if (!accountIdRegistry.contains(message.getPostedBy())) {
+                    throw new IllegalArgumentException("User not found.");
+                }
+                message.setMessageId(null);
+                acceptedIndexes.add(i);
+                accepted.add(message);
+            } catch (IllegalArgumentException e) {
+                results[i] = MessageBatchResult.rejected(i, e.getMessage());
+            }
+        }
+
+        List<Message> savedMessages = messageRepository.saveAll(accepted);
+        AfterCommit.run(() -> savedMessages.forEach(
+                savedMessage -> messageCache.invalidate(savedMessage.getMessageId())));
+        for (int i = 0; i < savedMessages.size(); i++) {
+            Message savedMessage = savedMessages.get(i);
+            eventPublisher.publishEvent(MessageEvent.created(savedMessage));
+            results[acceptedIndexes.get(i)] = MessageBatchResult.created(acceptedIndexes.get(i), savedMessage);
+        }
+        return List.of(results);
+    }
+
+    // Message text must be present, not blank and at most 255 characters
+    public static void validateMessageText(String messageText) {
+        if (messageText == null || messageText.trim().isEmpty()) {
             throw new IllegalArgumentException("Message text cannot be empty.");
         }
-        if (message.getMessageText().length() > 255) {
+        if (messageText.length() > 255) {
             throw new IllegalArgumentException("Message text cannot exceed 255 characters.");
         }
+    }
 
-        // Validate user existence
-        Optional<Account> accountOptional = accountRepository.findById(message.getPostedBy());
-        if (!accountOptional.isPresent()) {
-            throw new IllegalArgumentException("User not found.");
+    // Known account ids are answered from memory; anything else is a primary key probe that never loads the row
+    private boolean accountExists(Integer accountId) {
+        if (accountId == null) {
+            return false;
         }
-
-        // Save and return the message
-        return messageRepository.save(message);
+        if (accountIdRegistry.contains(accountId)) {
+            return true;
+        }
+        // An account being deleted still shows in the database until its delete commits
+        if (!accountIdRegistry.isRemoving(accountId) && accountRepository.existsById(accountId)) {
+            accountIdRegistry.add(accountId);
+            return true;
+        }
+        return false;
     }
 
     // Method to retrieve all messages
     public List<Message> getAllMessages() {
-        return messageRepository.findAll();
+        return messageRepository.findAllByOrderByMessageIdAsc();
+    }
+
+    // Method to retrieve one page of messages in message ID order, starting after the given cursor
+    public MessagePage getMessagesPage(String after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        // Fetch one extra row so we know whether another page exists without a second query
+        PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+        List<Message> messages;
+        if (after == null || after.isEmpty()) {
+            messages = messageRepository.findAllByOrderByMessageIdAsc(pageRequest);
+        } else {
+            messages = messageRepository.findByMessageIdGreaterThanOrderByMessageIdAsc(parseMessageIdCursor(after), pageRequest);
+        }
+
+        String nextCursor = null;
+        if (messages.size() > pageSize) {
+            messages = messages.subList(0, pageSize);
+            nextCursor = String.valueOf(messages.get(pageSize - 1).getMessageId());
+        }
+        return new MessagePage(messages, nextCursor);
     }
 
-    // Method to retrieve a message by Id
+    // Cursors for the message ID ordered pages are the last message ID the client has seen
+    private Integer parseMessageIdCursor(String cursor) {
+        try {
+            return Integer.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    // Method to search message text, best matches first. The index supplies the ranked ids, and the page is then
+    // loaded with one IN query; cursors are the number of matches the client has already seen.
+    public MessagePage searchMessages(String query, String after, Integer limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query cannot be empty.");
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        int offset = 0;
+        if (after != null && !after.isEmpty()) {
+            try {
+                offset = Integer.parseInt(after);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+            if (offset < 0 || offset > MAX_SEARCH_RESULTS) {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+        }
+
+        // Rank one match past the page so we know whether another page exists
+        int wanted = Math.min(offset + pageSize, MAX_SEARCH_RESULTS);
+        List<Integer> messageIds = messageSearchIndex.search(query, wanted + 1);
+        if (messageIds.size() <= offset) {
+            return new MessagePage(List.of(), null);
+        }
+        List<Integer> pageIds = messageIds.subList(offset, Math.min(messageIds.size(), wanted));
+        List<Message> messages = getMessagesByIds(pageIds);
+        String nextCursor = messageIds.size() > wanted ? String.valueOf(wanted) : null;
+        return new MessagePage(messages, nextCursor);
+    }
+
+    // Method to read what changed since a change feed cursor, optionally for one account's messages only. The log
+    // supplies the changed ids in commit order, and the current rows are then loaded with one IN query. A row that
+    // is already gone is reported as deleted, even if its own tombstone has not reached the log yet.
+    public MessageChangePage getMessageChanges(String since, Integer limit, Integer accountId) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        MessageChangeLog.Slice slice = messageChangeLog.read(since, pageSize, accountId);
+
+        List<Integer> upsertedIds = new ArrayList<>();
+        for (MessageChangeLog.Change change : slice.getChanges()) {
+            if (!change.isDeleted()) {
+                upsertedIds.add(change.getMessageId());
+            }
+        }
+        Map<Integer, Message> current = new HashMap<>();
+        for (Message message : getMessagesByIds(upsertedIds)) {
+            current.put(message.getMessageId(), message);
+        }
+        List<MessageChange> changes = new ArrayList<>(slice.getChanges().size());
+        for (MessageChangeLog.Change change : slice.getChanges()) {
+            Message message = change.isDeleted() ? null : current.get(change.getMessageId());
+            changes.add(message != null
+                    ? MessageChange.upsert(change.getSequence(), message)
+                    : MessageChange.delete(change.getSequence(), change.getMessageId()));
+        }
+        return new MessageChangePage(changes, slice.getNextCursor(), slice.hasMore());
+    }
+
+    // Method to load the given messages with one IN query, in the order given. Messages still queued for
+    // write-behind are served from the queue; ids that no longer exist are left out.
+    public List<Message> getMessagesByIds(List<Integer> messageIds) {
+        if (messageIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Message> found = new HashMap<>();
+        for (Message message : messageRepository.findMessagesByIds(messageIds)) {
+            found.put(message.getMessageId(), message);
+        }
+        List<Message> messages = new ArrayList<>(messageIds.size());
+        for (Integer messageId : messageIds) {
+            Message message = found.get(messageId);
+            if (message == null && messageWriteBehind != null) {
+                message = messageWriteBehind.getPending(messageId);
+            }
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    // Method to write every message to the given stream as newline-delimited JSON, one row at a time, so memory
+    // use does not depend on the size of the table
+    public void exportMessages(OutputStream out) throws IOException {
+        try (Stream<Message> messages = messageRepository.streamAllByOrderByMessageIdAsc()) {
+            Iterator<Message> iterator = messages.iterator();
+            while (iterator.hasNext()) {
+                out.write(messageWriter.writeValueAsBytes(iterator.next()));
+                out.write('\n');
+            }
+        }
+        out.flush();
+    }
+
+    // Method to retrieve a message by Id. Cache hits never touch the database, so no transaction is opened here;
+    // a miss runs its single query in the repository's own read-only transaction.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Message getMessageById(Integer id) {
-        return messageRepository.findById(id).orElse(null);
+        if (messageWriteBehind != null) {
+            Message pendingMessage = messageWriteBehind.getPending(id);
+            if (pendingMessage != null) {
+                return pendingMessage;
+            }
+        }
+        return messageCache.get(id, key -> messageRepository.findMessageById(key).orElse(null));
+    }
+
+    // Method to expose the message cache, so its size and counters can be bound to meters once at startup
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BoundedCache<?, ?> getMessageCache() {
+        return messageCache;
     }
     
+    // Method to get a message's current ETag, from memory, for conditional requests
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String getMessageETag(Integer id) {
+        return resourceVersions.messageETag(id);
+    }
+
+    // Method to get the current ETag of an account's message list, from memory. Returns null with write-behind
+    // enabled: a queued message joins the list when it is written, which no version counter sees.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String getMessagesETagByAccountId(Integer accountId) {
+        return messageWriteBehind == null ? resourceVersions.accountMessagesETag(accountId) : null;
+    }
+
     // Method to retrieve all messages posted by a specific account
     public List<Message> getMessagesByAccountId(Integer accountId) {
         return messageRepository.findByPostedBy(accountId);
     }
 
-    // Method to update a message by ID
-    public int updateMessage(Integer id, Message updatedMessage) {
-        Optional<Message> messageOptional = messageRepository.findById(id);
-        if (messageOptional.isPresent()) {
-            Message existingMessage = messageOptional.get();
-    
-            // Validate the new message text
-            if (updatedMessage.getMessageText() == null || updatedMessage.getMessageText().trim().isEmpty()) {
-                throw new IllegalArgumentException("Message text cannot be empty.");
-            }
-            if (updatedMessage.getMessageText().length() > 255) {
-                throw new IllegalArgumentException("Message text cannot exceed 255 characters.");
-            }
-    
-            // Update the message text and save changes
-            existingMessage.setMessageText(updatedMessage.getMessageText());
-            messageRepository.save(existingMessage);
-            return 1; // Indicate one row modified
+    // Method to retrieve one page of an account's messages, newest first, starting after the given cursor
+    public MessagePage getMessagesPageByAccountId(Integer accountId, String after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+        List<Message> messages;
+        if (after == null || after.isEmpty()) {
+            messages = messageRepository.findByPostedByOrderByTimePostedEpochDescMessageIdDesc(accountId, pageRequest);
         } else {
-            throw new IllegalArgumentException("Message not found.");
+            // Timeline cursors are "<timePostedEpoch>:<messageId>" of the last message the client has seen, with
+            // the timePostedEpoch left empty for a message that has none
+            String[] position = after.split(":", 2);
+            try {
+                Integer messageId = Integer.valueOf(position[1]);
+                messages = position[0].isEmpty()
+                        ? messageRepository.findUndatedByPostedByBefore(accountId, messageId, pageRequest)
+                        : messageRepository.findByPostedByBefore(accountId, Long.valueOf(position[0]), messageId,
+                                pageRequest);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+        }
+
+        String nextCursor = null;
+        if (messages.size() > pageSize) {
+            messages = messages.subList(0, pageSize);
+            Message last = messages.get(pageSize - 1);
+            nextCursor = (last.getTimePostedEpoch() == null ? "" : last.getTimePostedEpoch()) + ":" + last.getMessageId();
+        }
+        return new MessagePage(messages, nextCursor);
+    }
+
+    // Method to update a message by ID, returning the number of rows modified (0 if the message does not exist)
+    @Transactional
+    public int updateMessage(Integer id, Message updatedMessage) {
+        return updateMessage(id, updatedMessage, null);
+    }
+
+    // Method to update a message by ID only if it still has one of the given ETags (an If-Match header, or null to
+    // update unconditionally). The ETag is checked once the row is locked, so of two clients updating from the same
+    // ETag only the first succeeds; the other gets a PreconditionFailedException and rolls back.
+    @Transactional
+    public int updateMessage(Integer id, Message updatedMessage, String ifMatch) {
+        // Validate the new message text
+        validateMessageText(updatedMessage.getMessageText());
+
+        // A message still waiting in the write-behind queue is written first, so the update finds it
+        if (messageWriteBehind != null) {
+            messageWriteBehind.flushIfPending(id);
         }
+
+        // Lock the row and read its author for the event; no row means no message
+        Optional<Integer> postedBy = messageRepository.lockPostedByById(id);
+        if (postedBy.isEmpty()) {
+            return 0;
+        }
+        if (ifMatch != null && !ResourceVersions.matches(ifMatch, resourceVersions.messageETag(id))) {
+            throw new PreconditionFailedException();
+        }
+        // Update the message text in one statement; the row count tells us whether the message existed
+        int rowsUpdated = messageRepository.updateMessageText(id, updatedMessage.getMessageText());
+        if (rowsUpdated > 0) {
+            AfterCommit.run(() -> messageCache.invalidate(id));
+            eventPublisher.publishEvent(MessageEvent.updated(id, postedBy.get(), updatedMessage.getMessageText()));
+        }
+        return rowsUpdated;
     }
 
-    // Method to delete a message by ID
+    // Method to delete a message by ID, returning the number of rows deleted (0 if the message does not exist)
+    @Transactional
     public int deleteMessageById(Integer id) {
-        if (messageRepository.existsById(id)) {
-            messageRepository.deleteById(id);
-            return 1; // Successfully deleted one row
-        } else {
-            return 0; // No rows were deleted as the message ID doesn't exist
+        if (messageWriteBehind != null) {
+            messageWriteBehind.flushIfPending(id);
+        }
+        // The author is read with the row locked, so the event can say whose message it was
+        Optional<Integer> postedBy = messageRepository.lockPostedByById(id);
+        if (postedBy.isEmpty()) {
+            return 0;
+        }
+        int rowsDeleted = messageRepository.deleteByMessageId(id);
+        if (rowsDeleted > 0) {
+            AfterCommit.run(() -> messageCache.invalidate(id));
+            eventPublisher.publishEvent(MessageEvent.deleted(id, postedBy.get()));
         }
+        return rowsDeleted;
     }
 
 }
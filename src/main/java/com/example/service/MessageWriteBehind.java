@@ -0,0 +1,245 @@
+package com.example.service;
+
+import com.example.entity.Message;
+import com.example.event.MessageEvent;
+import com.example.exception.MessageQueueFullException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for new messages, enabled with app.messages.write-behind.enabled=true.
+ *
+ * A validated message gets its id straight away, from a block of message_seq values reserved the same way
+ * Hibernate's pooled-lo generator reserves them, and is queued. A background thread inserts queued messages in
+ * JDBC batches, one transaction per batch, whenever batch-size messages are waiting or every flush-interval-ms.
+ * Until then the message is served from memory by id; list queries only see it once it is written.
+ *
+ * The queue is bounded: when it is full new messages are refused, which the API reports as 429. Everything
+ * still queued is written before the application context (and with it the connection pool) shuts down.
+ *
+ * The CREATED event of a message is published inside the transaction that writes it, so the write-ahead log,
+ * the change log and the other listeners only learn of messages the database holds. A message that cannot be
+ * written is dropped without ever reaching them. An accepted message that is still queued when the process dies
+ * is lost, since nothing has logged it yet.
+ */
+@Component
+@ConditionalOnProperty(name = "app.messages.write-behind.enabled", havingValue = "true")
+public class MessageWriteBehind {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageWriteBehind.class);
+
+    private static final String INSERT_MESSAGE =
+            "insert into message (messageId, postedBy, messageText, timePostedEpoch) values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int allocationSize;
+
+    // Lock-free queue bounded by reserving a slot in queued before offering to it
+    private final Queue<Message> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    // Queued messages by id, so they can be read back before they are written
+    private final Map<Integer, Message> pending = new ConcurrentHashMap<>();
+
+    // Current block of reserved ids: nextId up to (not including) blockEnd
+    private final ReentrantLock idLock = new ReentrantLock();
+    private long nextId;
+    private long blockEnd;
+
+    // Held while writing, so a flush requested by a caller and the background flush never interleave
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Thread flusher = new Thread(this::runFlusher, "message-write-behind");
+    private volatile boolean running = true;
+
+    @Autowired
+    public MessageWriteBehind(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${app.messages.write-behind.queue-capacity:10000}") int capacity,
+                              @Value("${app.messages.write-behind.batch-size:500}") int batchSize,
+                              @Value("${app.messages.write-behind.flush-interval-ms:50}") long flushIntervalMillis,
+                              @Value("${spring.jpa.properties.app.id.allocation_size:50}") int allocationSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Batches always commit on their own, even when a flush is triggered from inside another transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.allocationSize = allocationSize;
+        this.flusher.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.start();
+    }
+
+    // Method to queue a validated message, returning it with its assigned id
+    public Message enqueue(Message message) {
+        if (!running) {
+            throw new MessageQueueFullException(capacity);
+        }
+        if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            throw new MessageQueueFullException(capacity);
+        }
+        Integer messageId;
+        try {
+            messageId = allocateId();
+        } catch (RuntimeException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+        Message queuedMessage = new Message(messageId, message.getPostedBy(), message.getMessageText(),
+                message.getTimePostedEpoch());
+        pending.put(queuedMessage.getMessageId(), queuedMessage);
+        queue.offer(queuedMessage);
+        if (queued.get() >= batchSize) {
+            LockSupport.unpark(flusher);
+        }
+        return queuedMessage;
+    }
+
+    // Method to look up a message that is queued but not written yet
+    public Message getPending(Integer messageId) {
+        return messageId == null ? null : pending.get(messageId);
+    }
+
+    // Method to write everything queued so far when the given message is among it, so a statement that follows
+    // (an update or delete) finds the row
+    public void flushIfPending(Integer messageId) {
+        if (messageId != null && pending.containsKey(messageId)) {
+            flush();
+        }
+    }
+
+    // Method to report how many messages are waiting to be written
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    // Method to write everything queued so far, in batches of at most batchSize
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Message> batch = new ArrayList<>(batchSize);
+            Message message;
+            while ((message = queue.poll()) != null) {
+                batch.add(message);
+                if (batch.size() == batchSize) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Stops the flusher and writes what is left, before the connection pool is closed
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        flush();
+    }
+
+    private void runFlusher() {
+        while (running) {
+            if (queued.get() < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                logger.error("Writing queued messages failed", e);
+            }
+        }
+    }
+
+    // Inserts one batch in a single transaction, along with the CREATED events of its messages. If the batch fails
+    // (say an author was deleted after the message was accepted), the messages are retried one at a time and only
+    // the ones that still fail are dropped.
+    private void write(List<Message> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_MESSAGE, batch, batch.size(), (statement, message) -> {
+                    statement.setInt(1, message.getMessageId());
+                    statement.setObject(2, message.getPostedBy(), Types.INTEGER);
+                    statement.setString(3, message.getMessageText());
+                    statement.setObject(4, message.getTimePostedEpoch(), Types.BIGINT);
+                });
+                batch.forEach(message -> eventPublisher.publishEvent(MessageEvent.created(message)));
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Writing a batch of {} messages failed, retrying them one at a time", batch.size(), e);
+            for (Message message : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update(INSERT_MESSAGE,
+                                new Object[] {message.getMessageId(), message.getPostedBy(), message.getMessageText(),
+                                        message.getTimePostedEpoch()},
+                                new int[] {Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.BIGINT});
+                        eventPublisher.publishEvent(MessageEvent.created(message));
+                    });
+                } catch (RuntimeException messageFailure) {
+                    logger.error("Dropping queued message {}", message.getMessageId(), messageFailure);
+                }
+            }
+        } finally {
+            for (Message message : batch) {
+                pending.remove(message.getMessageId());
+            }
+            queued.addAndGet(-batch.size());
+        }
+    }
+
+    // Hands out ids from a block of allocationSize values reserved with a single sequence call. Hibernate's
+    // pooled-lo generator reads the same sequence the same way, so the two never hand out the same id.
+    private Integer allocateId() {
+        idLock.lock();
+        try {
+            if (nextId == blockEnd) {
+                nextId = jdbcTemplate.queryForObject("select next value for message_seq", Long.class);
+                blockEnd = nextId + allocationSize;
+            }
+            return Math.toIntExact(nextId++);
+        } finally {
+            idLock.unlock();
+        }
+    }
+}
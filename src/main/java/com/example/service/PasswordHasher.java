@@ -0,0 +1,88 @@
+package com.example.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Salted PBKDF2-HMAC-SHA256 password hashing.
+ *
+ * Hashes are stored as "pbkdf2$iterations$salt$hash" (salt and hash in Base64), so the cost can be raised later
+ * without invalidating existing passwords. Values without that prefix are legacy plaintext passwords, which still
+ * verify and are reported by needsRehash so they can be upgraded on the next successful login. All comparisons are
+ * constant time.
+ */
+@Component
+public class PasswordHasher {
+
+    private static final String PREFIX = "pbkdf2";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    public PasswordHasher(@Value("${app.security.password-hash-iterations:100000}") int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Password hash iterations must be at least 1.");
+        }
+        this.iterations = iterations;
+    }
+
+    // Method to hash a password with a fresh random salt at the configured cost
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    // Method to check a password against a stored hash (or legacy plaintext value) in constant time
+    public boolean matches(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!stored.startsWith(PREFIX + "$")) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(pbkdf2(password, salt, storedIterations), expected);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Method to tell whether a stored value should be replaced: legacy plaintext, or hashed at a different cost
+    public boolean needsRehash(String stored) {
+        return stored == null || !stored.startsWith(PREFIX + "$" + iterations + "$");
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not hash password.", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.service;
+
+import com.example.event.AccountEvent;
+import com.example.event.MessageEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Version counters behind the strong ETags of message and account reads, kept in memory so a conditional request
+ * can be answered without touching the database.
+ *
+ * Each resource hashes to one of app.etag.stripes slots, which is stamped from a global clock whenever a resource
+ * in it changes. Two resources sharing a slot only cost each other a spurious miss; a change always moves the
+ * ETag. ETags also carry an epoch, so tags issued before a restart never match.
+ *
+ * Slots are stamped before a write commits, while the write still holds its row lock, so a conditional update
+ * waiting on that lock sees the new version; and again after it commits, so a read that raced the commit and
+ * tagged the old row with the first stamp is not trusted.
+ */
+@Component
+public class ResourceVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong clock = new AtomicLong();
+    private final int mask;
+
+    // A message's own row; an account's row; and the list of an account's messages
+    private final AtomicLongArray messages;
+    private final AtomicLongArray accounts;
+    private final AtomicLongArray accountMessages;
+
+    @Autowired
+    public ResourceVersions(@Value("${app.etag.stripes:65536}") int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.mask = size - 1;
+        this.messages = new AtomicLongArray(size);
+        this.accounts = new AtomicLongArray(size);
+        this.accountMessages = new AtomicLongArray(size);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void beforeMessageCommit(MessageEvent event) {
+        onMessageEvent(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        stamp(messages, event.getMessage().getMessageId());
+        if (event.getMessage().getPostedBy() != null) {
+            stamp(accountMessages, event.getMessage().getPostedBy());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void beforeAccountCommit(AccountEvent event) {
+        onAccountEvent(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountEvent(AccountEvent event) {
+        stamp(accounts, event.getAccountId());
+        // An account's message list turns into a 404 when it is deleted, and back when an account takes its id
+        stamp(accountMessages, event.getAccountId());
+    }
+
+    // Method to get the current ETag of a message
+    public String messageETag(int messageId) {
+        return eTag(messages, messageId);
+    }
+
+    // Method to get the current ETag of an account
+    public String accountETag(int accountId) {
+        return eTag(accounts, accountId);
+    }
+
+    // Method to get the current ETag of an account's message list (every page of it)
+    public String accountMessagesETag(int accountId) {
+        return eTag(accountMessages, accountId);
+    }
+
+    /**
+     * Checks an If-Match header against an ETag, using the strong comparison: weak tags never match.
+     * @param ifMatch the header value: "*" or a comma separated list of ETags
+     * @param eTag the resource's current ETag, quoted
+     * @return true if the header matches
+     */
+    public static boolean matches(String ifMatch, String eTag) {
+        for (String candidate : ifMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void stamp(AtomicLongArray slots, int id) {
+        slots.set(id & mask, clock.incrementAndGet());
+    }
+
+    private String eTag(AtomicLongArray slots, int id) {
+        return "\"" + epoch + "-" + Long.toString(slots.get(id & mask), 36) + "\"";
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The newest message ids of one account's home timeline, kept in ascending order and capped at a fixed capacity.
+ *
+ * A buffer is cached before it is loaded, so ids fanned out while the initial query runs are kept and merged with
+ * its result instead of being lost in between.
+ */
+final class TimelineBuffer {
+
+    private final int capacity;
+    private final Object loadLock = new Object();
+    private int[] messageIds;
+    private int size;
+    private boolean loaded;
+
+    // Set once older messages may exist than the oldest id held here
+    private boolean truncated;
+
+    TimelineBuffer(int capacity) {
+        this.capacity = capacity;
+        this.messageIds = new int[Math.min(capacity, 16)];
+    }
+
+    // Adds a new message id, dropping the oldest one if the buffer is full
+    synchronized void push(int messageId) {
+        int position = Arrays.binarySearch(messageIds, 0, size, messageId);
+        if (position >= 0) {
+            return;
+        }
+        insert(-position - 1, messageId);
+    }
+
+    // Runs the loader (newest ids first, at most capacity + 1 of them) the first time the buffer is read
+    void loadIfNeeded(Supplier<List<Integer>> loader) {
+        synchronized (loadLock) {
+            synchronized (this) {
+                if (loaded) {
+                    return;
+                }
+            }
+            // The query runs without the buffer's own lock, so fan-out is never held up by it
+            List<Integer> newestFirst = loader.get();
+            synchronized (this) {
+                if (newestFirst.size() > capacity) {
+                    truncated = true;
+                }
+                for (int i = 0; i < Math.min(capacity, newestFirst.size()); i++) {
+                    int position = Arrays.binarySearch(messageIds, 0, size, newestFirst.get(i));
+                    if (position < 0) {
+                        insert(-position - 1, newestFirst.get(i));
+                    }
+                }
+                loaded = true;
+            }
+        }
+    }
+
+    // Returns up to count ids older than the given one, newest first
+    synchronized List<Integer> before(int messageId, int count) {
+        int position = Arrays.binarySearch(messageIds, 0, size, messageId);
+        int end = position >= 0 ? position : -position - 1;
+        List<Integer> page = new ArrayList<>(Math.min(count, end));
+        for (int i = end - 1; i >= 0 && page.size() < count; i--) {
+            page.add(messageIds[i]);
+        }
+        return page;
+    }
+
+    synchronized boolean isTruncated() {
+        return truncated;
+    }
+
+    // Called with the buffer's lock held
+    private void insert(int position, int messageId) {
+        if (size == capacity) {
+            truncated = true;
+            if (position == 0) {
+                return;
+            }
+            // Drop the oldest id to make room
+            System.arraycopy(messageIds, 1, messageIds, 0, position - 1);
+            messageIds[position - 1] = messageId;
+            return;
+        }
+        if (size == messageIds.length) {
+            messageIds = Arrays.copyOf(messageIds, Math.min(capacity, messageIds.length * 2));
+        }
+        System.arraycopy(messageIds, position, messageIds, position + 1, size - position);
+        messageIds[position] = messageId;
+        size++;
+    }
+}
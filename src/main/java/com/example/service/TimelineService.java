@@ -0,0 +1,178 @@
+package com.example.service;
+
+import com.example.cache.BoundedCache;
+import com.example.dto.MessagePage;
+import com.example.entity.Message;
+import com.example.event.FollowEvent;
+import com.example.event.MessageEvent;
+import com.example.repository.AccountRepository;
+import com.example.repository.MessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service class for home timelines: the messages posted by the accounts an account follows, newest (highest
+ * message id) first.
+ *
+ * Timelines are precomputed on write. When a message is created its id is pushed into the cached timeline buffer
+ * of every follower of its author (fan-out on write), so reading the first pages of a timeline is a lookup in
+ * memory plus one query for the messages themselves. Buffers are built on first read, hold the newest
+ * app.timeline.capacity ids, and pages older than that are read from the message table.
+ *
+ * Accounts with more than app.timeline.celebrity-threshold followers are not fanned out, so one post does not
+ * cost a write per follower; their messages are merged in at read time instead (fan-out on read).
+ */
+@Service
+@Transactional(readOnly = true)
+public class TimelineService {
+
+    private final FollowService followService;
+    private final MessageService messageService;
+    private final MessageRepository messageRepository;
+    private final AccountRepository accountRepository;
+    private final AccountIdRegistry accountIdRegistry;
+    private final int capacity;
+    private final int celebrityThreshold;
+
+    // Timeline buffers of recently read accounts; only cached buffers receive fan-out
+    private final BoundedCache<Integer, TimelineBuffer> timelines;
+
+    @Autowired
+    public TimelineService(FollowService followService, MessageService messageService,
+                           MessageRepository messageRepository, AccountRepository accountRepository,
+                           AccountIdRegistry accountIdRegistry,
+                           @Value("${app.timeline.capacity:800}") int capacity,
+                           @Value("${app.timeline.celebrity-threshold:5000}") int celebrityThreshold,
+                           @Value("${app.timeline.cache.maximum-size:10000}") int cacheMaximumSize,
+                           @Value("${app.timeline.cache.ttl-seconds:3600}") long cacheTtlSeconds) {
+        this.followService = followService;
+        this.messageService = messageService;
+        this.messageRepository = messageRepository;
+        this.accountRepository = accountRepository;
+        this.accountIdRegistry = accountIdRegistry;
+        this.capacity = capacity;
+        this.celebrityThreshold = celebrityThreshold;
+        this.timelines = new BoundedCache<>(cacheMaximumSize, cacheTtlSeconds, TimeUnit.SECONDS);
+    }
+
+    // Pushes each new message into the timelines of its author's followers, unless the author is a celebrity.
+    // Only memory is touched, so no transaction is opened after the insert commits.
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onMessageEvent(MessageEvent event) {
+        if (event.getType() != MessageEvent.Type.CREATED) {
+            return;
+        }
+        Message message = event.getMessage();
+        Set<Integer> followerIds = followService.getFollowerIds(message.getPostedBy());
+        if (followerIds.size() > celebrityThreshold) {
+            return;
+        }
+        for (Integer followerId : followerIds) {
+            TimelineBuffer buffer = timelines.getIfPresent(followerId);
+            if (buffer != null) {
+                buffer.push(message.getMessageId());
+            }
+        }
+    }
+
+    // A follow or unfollow changes whose messages belong in the follower's timeline, so it is rebuilt on next
+    // read. An account that drops back to the celebrity threshold has not been fanned out for a while, so every
+    // timeline is rebuilt then.
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onFollowEvent(FollowEvent event) {
+        timelines.invalidate(event.getFollowerId());
+        if (event.getType() == FollowEvent.Type.UNFOLLOWED
+                && followService.getFollowerCount(event.getFolloweeId()) == celebrityThreshold) {
+            timelines.invalidateAll();
+        }
+    }
+
+    // Method to read one page of an account's home timeline, newest first, starting after the given cursor.
+    // Returns null if the account does not exist.
+    public MessagePage getTimeline(Integer accountId, String after, Integer limit) {
+        int pageSize = limit == null ? MessageService.DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MessageService.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MessageService.MAX_PAGE_SIZE + ".");
+        }
+        int before = Integer.MAX_VALUE;
+        if (after != null && !after.isEmpty()) {
+            // Timeline cursors are the last message ID the client has seen
+            try {
+                before = Integer.parseInt(after);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+        }
+        if (!accountExists(accountId)) {
+            return null;
+        }
+
+        List<Integer> fannedOut = new ArrayList<>();
+        List<Integer> celebrities = new ArrayList<>();
+        for (Integer followeeId : followService.getFolloweeIds(accountId)) {
+            if (followService.getFollowerCount(followeeId) > celebrityThreshold) {
+                celebrities.add(followeeId);
+            } else {
+                fannedOut.add(followeeId);
+            }
+        }
+
+        // Fetch one extra id so we know whether another page exists
+        PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+        TreeSet<Integer> ids = new TreeSet<>();
+        if (!fannedOut.isEmpty()) {
+            TimelineBuffer buffer = timelines.get(accountId, key -> new TimelineBuffer(capacity));
+            buffer.loadIfNeeded(() -> messageRepository.findIdsByPostedByIn(fannedOut, PageRequest.of(0, capacity + 1)));
+            List<Integer> page = buffer.before(before, pageSize + 1);
+            if (page.size() <= pageSize && buffer.isTruncated()) {
+                // Older than anything the buffer holds: read this page straight from the table
+                page = messageRepository.findIdsByPostedByInBefore(fannedOut, before, pageRequest);
+            }
+            ids.addAll(page);
+        }
+        if (!celebrities.isEmpty()) {
+            ids.addAll(messageRepository.findIdsByPostedByInBefore(celebrities, before, pageRequest));
+        }
+
+        List<Integer> pageIds = new ArrayList<>(pageSize);
+        for (Integer messageId : ids.descendingSet()) {
+            if (pageIds.size() == pageSize) {
+                break;
+            }
+            pageIds.add(messageId);
+        }
+        String nextCursor = ids.size() > pageSize ? String.valueOf(pageIds.get(pageSize - 1)) : null;
+        return new MessagePage(messageService.getMessagesByIds(pageIds), nextCursor);
+    }
+
+    // Method to expose the timeline cache, so its size and counters can be bound to meters once at startup
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BoundedCache<?, ?> getTimelineCache() {
+        return timelines;
+    }
+
+    private boolean accountExists(Integer accountId) {
+        if (accountIdRegistry.contains(accountId)) {
+            return true;
+        }
+        // An account being deleted still shows in the database until its delete commits
+        if (!accountIdRegistry.isRemoving(accountId) && accountRepository.existsById(accountId)) {
+            accountIdRegistry.add(accountId);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.service;
+
+import com.example.repository.AccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent in-memory set of usernames known to be taken, so obvious duplicate registrations are rejected
+ * without a database round trip.
+ *
+ * Membership is authoritative as long as usernames are only changed through AccountService. Absence only means
+ * "not known to be taken": the unique index on account.username still decides, and AccountService records any
+ * duplicate it runs into.
+ */
+@Component
+public class UsernameRegistry {
+
+    private final AccountRepository accountRepository;
+    private final Set<String> usernames = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public UsernameRegistry(AccountRepository accountRepository) {
+        this.accountRepository = accountRepository;
+    }
+
+    // Loads every existing username once the application (and its seed data) is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        usernames.addAll(accountRepository.findAllUsernames());
+    }
+
+    // Method to check whether a username is known to be taken
+    public boolean contains(String username) {
+        return username != null && usernames.contains(username);
+    }
+
+    // Method to record a username that is taken
+    public void add(String username) {
+        if (username != null) {
+            usernames.add(username);
+        }
+    }
+
+    // Method to forget a username that is no longer used
+    public void remove(String username) {
+        if (username != null) {
+            usernames.remove(username);
+        }
+    }
+}
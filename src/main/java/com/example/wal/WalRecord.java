@@ -0,0 +1,228 @@
+package com.example.wal;
+
+import com.example.event.AccountEvent;
+import com.example.event.FollowEvent;
+import com.example.event.MessageEvent;
+import com.example.entity.Message;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * One logged mutation of the account, message or follow table. Applying a record is idempotent (rows are merged by
+ * primary key, updates and deletes set an absolute state), so replaying a record whose change already reached
+ * the database is harmless. Records logged inside a transaction carry its id, and an ABORT record marks one whose
+ * transaction rolled back after logging them.
+ */
+public class WalRecord {
+
+    // Written to the log by ordinal, so new types only ever go at the end
+    enum Type { ACCOUNT_UPSERT, ACCOUNT_DELETE, MESSAGE_UPSERT, MESSAGE_UPDATE_TEXT, MESSAGE_DELETE, FOLLOW, UNFOLLOW,
+        ABORT }
+
+    private final Type type;
+    // 0 for a change made outside a transaction
+    private final long transactionId;
+    private final int id;
+    // postedBy of a message, or the followee of a follow
+    private final Integer relatedId;
+    private final String text;
+    private final String secondText;
+    private final Long timePostedEpoch;
+
+    // text is the username or message text, secondText the password hash
+    private WalRecord(Type type, long transactionId, int id, Integer relatedId, String text, String secondText,
+                      Long timePostedEpoch) {
+        this.type = type;
+        this.transactionId = transactionId;
+        this.id = id;
+        this.relatedId = relatedId;
+        this.text = text;
+        this.secondText = secondText;
+        this.timePostedEpoch = timePostedEpoch;
+    }
+
+    private WalRecord(Type type, int id, Integer relatedId, String text, String secondText, Long timePostedEpoch) {
+        this(type, 0, id, relatedId, text, secondText, timePostedEpoch);
+    }
+
+    // Returns this change as logged by the given transaction
+    WalRecord inTransaction(long transactionId) {
+        return new WalRecord(type, transactionId, id, relatedId, text, secondText, timePostedEpoch);
+    }
+
+    static WalRecord abort(long transactionId) {
+        return new WalRecord(Type.ABORT, transactionId, 0, null, null, null, null);
+    }
+
+    long getTransactionId() {
+        return transactionId;
+    }
+
+    boolean isAbort() {
+        return type == Type.ABORT;
+    }
+
+    static WalRecord accountUpsert(int accountId, String username, String passwordHash) {
+        return new WalRecord(Type.ACCOUNT_UPSERT, accountId, null, username, passwordHash, null);
+    }
+
+    static WalRecord messageUpsert(Message message) {
+        return new WalRecord(Type.MESSAGE_UPSERT, message.getMessageId(), message.getPostedBy(),
+                message.getMessageText(), null, message.getTimePostedEpoch());
+    }
+
+    static WalRecord of(MessageEvent event) {
+        Message message = event.getMessage();
+        switch (event.getType()) {
+            case CREATED:
+                return messageUpsert(message);
+            case UPDATED:
+                return new WalRecord(Type.MESSAGE_UPDATE_TEXT, message.getMessageId(), null, message.getMessageText(),
+                        null, null);
+            default:
+                return new WalRecord(Type.MESSAGE_DELETE, message.getMessageId(), null, null, null, null);
+        }
+    }
+
+    static WalRecord follow(int followerId, int followeeId) {
+        return new WalRecord(Type.FOLLOW, followerId, followeeId, null, null, null);
+    }
+
+    static WalRecord of(FollowEvent event) {
+        Type type = event.getType() == FollowEvent.Type.FOLLOWED ? Type.FOLLOW : Type.UNFOLLOW;
+        return new WalRecord(type, event.getFollowerId(), event.getFolloweeId(), null, null, null);
+    }
+
+    static WalRecord of(AccountEvent event) {
+        if (event.getType() == AccountEvent.Type.DELETED) {
+            return new WalRecord(Type.ACCOUNT_DELETE, event.getAccountId(), null, null, null, null);
+        }
+        return accountUpsert(event.getAccountId(), event.getUsername(), event.getPasswordHash());
+    }
+
+    // Serialized form: type ordinal, transaction id, id, then the fields the type uses
+    byte[] toBytes() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type.ordinal());
+            out.writeLong(transactionId);
+            out.writeInt(id);
+            switch (type) {
+                case ACCOUNT_UPSERT:
+                    out.writeUTF(text);
+                    writeNullable(out, secondText);
+                    break;
+                case MESSAGE_UPSERT:
+                    writeNullable(out, relatedId);
+                    writeNullable(out, text);
+                    writeNullable(out, timePostedEpoch);
+                    break;
+                case MESSAGE_UPDATE_TEXT:
+                    out.writeUTF(text);
+                    break;
+                case FOLLOW:
+                case UNFOLLOW:
+                    out.writeInt(relatedId);
+                    break;
+                default:
+                    break;
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static WalRecord read(DataInput in) throws IOException {
+        Type type = Type.values()[in.readByte()];
+        long transactionId = in.readLong();
+        int id = in.readInt();
+        switch (type) {
+            case ACCOUNT_UPSERT:
+                return new WalRecord(type, transactionId, id, null, in.readUTF(), readNullable(in), null);
+            case MESSAGE_UPSERT:
+                return new WalRecord(type, transactionId, id, in.readBoolean() ? in.readInt() : null,
+                        readNullable(in), null, in.readBoolean() ? in.readLong() : null);
+            case MESSAGE_UPDATE_TEXT:
+                return new WalRecord(type, transactionId, id, null, in.readUTF(), null, null);
+            case FOLLOW:
+            case UNFOLLOW:
+                return new WalRecord(type, transactionId, id, in.readInt(), null, null, null);
+            default:
+                return new WalRecord(type, transactionId, id, null, null, null, null);
+        }
+    }
+
+    // Applies the mutation to the database
+    void apply(JdbcTemplate jdbcTemplate) {
+        switch (type) {
+            case ACCOUNT_UPSERT:
+                jdbcTemplate.update("merge into account (accountId, username, password) key (accountId) values (?, ?, ?)",
+                        id, text, secondText);
+                break;
+            case ACCOUNT_DELETE:
+                jdbcTemplate.update("delete from account where accountId = ?", id);
+                break;
+            case MESSAGE_UPSERT:
+                jdbcTemplate.update("merge into message (messageId, postedBy, messageText, timePostedEpoch) "
+                        + "key (messageId) values (?, ?, ?, ?)", id, relatedId, text, timePostedEpoch);
+                break;
+            case MESSAGE_UPDATE_TEXT:
+                jdbcTemplate.update("update message set messageText = ? where messageId = ?", text, id);
+                break;
+            case FOLLOW:
+                jdbcTemplate.update("merge into follow (followerId, followeeId) key (followerId, followeeId) "
+                        + "values (?, ?)", id, relatedId);
+                break;
+            case UNFOLLOW:
+                jdbcTemplate.update("delete from follow where followerId = ? and followeeId = ?", id, relatedId);
+                break;
+            case MESSAGE_DELETE:
+                jdbcTemplate.update("delete from message where messageId = ?", id);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @Override
+    public String toString() {
+        return "WalRecord{" +
+                "type=" + type +
+                ", transactionId=" + transactionId +
+                ", id=" + id +
+                '}';
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.wal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * One preallocated, memory-mapped log file. Records are framed as [length][crc32][payload]; the zero-filled tail
+ * of the file reads as a length of 0, which is where replay stops.
+ */
+class WalSegment {
+
+    static final int HEADER_BYTES = 8;
+
+    private final long id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private WalSegment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static String fileName(long id) {
+        return String.format("wal-%020d.log", id);
+    }
+
+    // Creates a new, zero-filled segment of the given size
+    static WalSegment create(Path directory, long id, int size) throws IOException {
+        Path path = directory.resolve(fileName(id));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new WalSegment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    long getId() {
+        return id;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    // Copies the framed record into the mapping, returning false if it does not fit in what is left of the file
+    boolean tryAppend(byte[] payload) {
+        if (buffer.remaining() < HEADER_BYTES + payload.length + 4) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int start = buffer.position();
+        buffer.position(start + 4);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        // The length is written last, so a torn append never looks like a complete record
+        buffer.putInt(start, payload.length);
+        return true;
+    }
+
+    // Writes the dirty pages of the mapping to the device
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,533 @@
+package com.example.wal;
+
+import com.example.entity.Message;
+import com.example.event.AccountEvent;
+import com.example.event.FollowEvent;
+import com.example.event.MessageEvent;
+import com.example.service.MessageWriteBehind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log for the in-memory database, enabled with app.wal.enabled=true.
+ *
+ * Every account, message and follow change (see {@link AccountEvent}, {@link MessageEvent} and
+ * {@link FollowEvent}) is appended to a memory-mapped segment file in app.wal.directory, and the request does not
+ * return until the record is on disk. Concurrent requests share one force of the mapping (group commit): whichever thread finds no force in
+ * progress becomes the leader and syncs everything appended so far, while the others wait for it. With
+ * app.wal.fsync=false records are left to the OS page cache, which survives a process crash but not a power loss.
+ * Messages posted with write-behind are the exception: they are logged when their batch is written (see
+ * {@link MessageWriteBehind}), not before the post returns.
+ *
+ * On startup the latest snapshot and the segments after it are replayed into the database, in order. Every
+ * app.wal.compaction-interval-seconds the log is rolled to a new segment, the tables are written out as a new
+ * snapshot (once every transaction that logged to an older segment has finished), and older segments and
+ * snapshots are deleted.
+ *
+ * Changes made in a transaction are logged just before it commits, while it still holds its row locks, so two
+ * transactions changing the same row append their records in the order they commit and replay ends with the
+ * last one. If the append fails, the transaction rolls back. Holding the locks until the record is durable
+ * lengthens them by one (shared) force. Each record carries its transaction's id; if the transaction still rolls
+ * back after logging (a later before-commit step or the commit itself failed), an abort record for that id is
+ * appended and replay skips the transaction's records.
+ *
+ * Changes published outside a transaction, such as a single insert that committed on its own, are logged right
+ * after, before the request returns; a failure there is only logged, since the change already stands.
+ */
+@Component
+@ConditionalOnProperty(name = "app.wal.enabled", havingValue = "true")
+public class WriteAheadLog implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("wal-(\\d{20})\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d{20})\\.wal");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageWriteBehind messageWriteBehind;
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final long compactionIntervalSeconds;
+
+    // Guards the current segment and the sequence numbers below; synced is signalled after every force
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition synced = lock.newCondition();
+    private WalSegment segment;
+    private long appendedSeq;
+    private long durableSeq;
+    private boolean syncing;
+    private long snapshotSeq;
+
+    // Transactions that logged a change and have not committed or rolled back yet, by the segment they logged to;
+    // completed is signalled whenever one finishes
+    private final Map<Long, Integer> openTransactions = new HashMap<>();
+    private final Condition completed = lock.newCondition();
+    // Ids handed to logging transactions; replay moves this past every id in the log
+    private final AtomicLong transactionIds = new AtomicLong();
+
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "wal-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public WriteAheadLog(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                         Optional<MessageWriteBehind> messageWriteBehind,
+                         @Value("${app.wal.directory:wal}") String directory,
+                         @Value("${app.wal.segment-size-mb:64}") int segmentSizeMb,
+                         @Value("${app.wal.fsync:true}") boolean fsync,
+                         @Value("${app.wal.compaction-interval-seconds:300}") long compactionIntervalSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.messageWriteBehind = messageWriteBehind.orElse(null);
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        this.fsync = fsync;
+        this.compactionIntervalSeconds = compactionIntervalSeconds;
+    }
+
+    // Replays the log once the schema and seed data are in place, before the application takes requests
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            Files.createDirectories(directory);
+            long lastFileId = replay();
+            segment = WalSegment.create(directory, lastFileId + 1, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the write-ahead log in " + directory.toAbsolutePath(), e);
+        }
+        if (compactionIntervalSeconds > 0) {
+            compactor.scheduleWithFixedDelay(this::compactQuietly, compactionIntervalSeconds,
+                    compactionIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        log(WalRecord.of(event));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onAccountEvent(AccountEvent event) {
+        log(WalRecord.of(event));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onFollowEvent(FollowEvent event) {
+        log(WalRecord.of(event));
+    }
+
+    // Appends the record of a change; inside a transaction a failure rolls it back, outside one it is logged
+    private void log(WalRecord record) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            LoggedTransaction transaction = (LoggedTransaction) TransactionSynchronizationManager.getResource(this);
+            if (transaction == null) {
+                transaction = new LoggedTransaction(transactionIds.incrementAndGet());
+                TransactionSynchronizationManager.bindResource(this, transaction);
+                TransactionSynchronizationManager.registerSynchronization(transaction);
+            }
+            append(record.inTransaction(transaction.id), transaction);
+            return;
+        }
+        try {
+            append(record);
+        } catch (RuntimeException e) {
+            logger.error("Could not log committed change {} to the write-ahead log", record, e);
+        }
+    }
+
+    // Method to append a record and wait until it is durable
+    public void append(WalRecord record) {
+        append(record, null);
+    }
+
+    // Appends a record and waits until it is durable. With a transaction, compaction waits for it to finish before
+    // it snapshots the tables.
+    private void append(WalRecord record, LoggedTransaction transaction) {
+        byte[] payload = record.toBytes();
+        lock.lock();
+        try {
+            if (!segment.tryAppend(payload)) {
+                roll();
+                if (!segment.tryAppend(payload)) {
+                    throw new IllegalStateException("Record of " + payload.length + " bytes does not fit in a segment.");
+                }
+            }
+            if (transaction != null) {
+                openTransactions.merge(segment.getId(), 1, Integer::sum);
+                transaction.segmentIds.add(segment.getId());
+            }
+            awaitDurable(++appendedSeq);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Waits until the record with the given sequence number is on disk; called with the lock held
+    private void awaitDurable(long seq) {
+        if (!fsync) {
+            return;
+        }
+        while (durableSeq < seq) {
+            if (syncing) {
+                synced.awaitUninterruptibly();
+                continue;
+            }
+            // Become the leader: force everything appended so far, without holding the lock meanwhile
+            syncing = true;
+            long target = appendedSeq;
+            WalSegment toForce = segment;
+            lock.unlock();
+            try {
+                toForce.force();
+            } finally {
+                lock.lock();
+                syncing = false;
+                durableSeq = Math.max(durableSeq, target);
+                synced.signalAll();
+            }
+        }
+    }
+
+    private void transactionCompleted(long segmentId) {
+        lock.lock();
+        try {
+            openTransactions.computeIfPresent(segmentId, (id, count) -> count == 1 ? null : count - 1);
+            completed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A transaction that logged changes. Once it finishes, compaction may snapshot the segments it logged to; if it
+    // rolled back, an abort record tells replay to skip its changes.
+    private class LoggedTransaction implements TransactionSynchronization {
+        final long id;
+        final List<Long> segmentIds = new ArrayList<>();
+
+        LoggedTransaction(long id) {
+            this.id = id;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(WriteAheadLog.this);
+            try {
+                if (status == STATUS_ROLLED_BACK) {
+                    append(WalRecord.abort(id));
+                }
+            } catch (RuntimeException e) {
+                logger.error("Could not log the rollback of transaction {}; replay will apply its changes", id, e);
+            } finally {
+                for (long segmentId : segmentIds) {
+                    transactionCompleted(segmentId);
+                }
+            }
+        }
+    }
+
+    // Method to write a snapshot of the tables and delete the log files it replaces
+    public void compact() throws IOException {
+        long snapshotId;
+        lock.lock();
+        try {
+            roll();
+            snapshotId = segment.getId();
+            snapshotSeq = appendedSeq;
+            // A change logged to an older segment must have committed for the snapshot to see it
+            while (openTransactions.keySet().stream().anyMatch(id -> id < snapshotId)) {
+                completed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Changes committed from here on are in the new segment, which is replayed on top of the snapshot
+        Path temporary = directory.resolve("snapshot.tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+            DataOutputStream data = new DataOutputStream(out);
+            RowCallbackHandler accounts = row -> writeFramed(data, WalRecord.accountUpsert(row.getInt(1),
+                    row.getString(2), row.getString(3)));
+            RowCallbackHandler messages = row -> writeFramed(data, WalRecord.messageUpsert(new Message(row.getInt(1),
+                    row.getObject(2, Integer.class), row.getString(3), row.getObject(4, Long.class))));
+            RowCallbackHandler follows = row -> writeFramed(data, WalRecord.follow(row.getInt(1), row.getInt(2)));
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.query("select accountId, username, password from account order by accountId", accounts);
+                jdbcTemplate.query("select messageId, postedBy, messageText, timePostedEpoch from message "
+                        + "order by messageId", messages);
+                jdbcTemplate.query("select followerId, followeeId from follow", follows);
+            });
+            data.writeInt(0);
+            data.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(String.format("snapshot-%020d.wal", snapshotId)),
+                StandardCopyOption.ATOMIC_MOVE);
+
+        for (Path file : listFiles()) {
+            long fileId = fileId(file);
+            if (fileId < snapshotId) {
+                Files.delete(file);
+            }
+        }
+        logger.info("Wrote write-ahead log snapshot {}", snapshotId);
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        compactor.shutdownNow();
+        // Queued messages are logged as they are written, so write them while the log is still open
+        if (messageWriteBehind != null) {
+            messageWriteBehind.shutdown();
+        }
+        lock.lock();
+        try {
+            if (segment != null) {
+                segment.force();
+                segment.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Starts a new segment; called with the lock held. The old one is forced first, so everything appended to it
+    // is durable before anything lands in the next.
+    private void roll() {
+        WalSegment previous = segment;
+        try {
+            segment = WalSegment.create(directory, previous.getId() + 1, segmentSize);
+            previous.force();
+            previous.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        durableSeq = appendedSeq;
+        synced.signalAll();
+    }
+
+    private void compactQuietly() {
+        try {
+            lock.lock();
+            try {
+                if (appendedSeq == snapshotSeq) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            compact();
+        } catch (Exception e) {
+            logger.warn("Write-ahead log compaction failed", e);
+        }
+    }
+
+    // Applies the latest snapshot and every segment from it on, returning the id of the last file read
+    private long replay() throws IOException {
+        List<Path> files = listFiles();
+        long snapshotId = -1;
+        for (Path file : files) {
+            if (SNAPSHOT_FILE.matcher(file.getFileName().toString()).matches()) {
+                snapshotId = Math.max(snapshotId, fileId(file));
+            }
+        }
+
+        List<Path> replayed = new ArrayList<>();
+        for (Path file : files) {
+            long fileId = fileId(file);
+            boolean isSnapshot = SNAPSHOT_FILE.matcher(file.getFileName().toString()).matches();
+            if (isSnapshot ? fileId == snapshotId : fileId >= snapshotId) {
+                replayed.add(file);
+            }
+        }
+
+        // An abort record follows the records it cancels, so find them all before applying anything
+        Set<Long> aborted = new HashSet<>();
+        for (Path file : replayed) {
+            scanTransactions(file, aborted);
+        }
+
+        long lastFileId = 0;
+        int applied = 0;
+        for (Path file : replayed) {
+            boolean isSnapshot = SNAPSHOT_FILE.matcher(file.getFileName().toString()).matches();
+            applied += replayFile(file, isSnapshot, aborted);
+            lastFileId = Math.max(lastFileId, fileId(file));
+        }
+
+        if (applied > 0) {
+            // Ids handed out from here on must not collide with replayed rows
+            restartSequence("message_seq", "select coalesce(max(messageId), 0) + 1 from message");
+            restartSequence("account_seq", "select coalesce(max(accountId), 0) + 1 from account");
+            logger.info("Replayed {} write-ahead log records from {}", applied, directory.toAbsolutePath());
+        }
+        return lastFileId;
+    }
+
+    // Collects the transactions the file marks as rolled back, and moves the transaction ids past the ones it uses
+    private void scanTransactions(Path file, Set<Long> aborted) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            DataInputStream data = new DataInputStream(in);
+            WalRecord record;
+            while ((record = readFramed(data, file)) != null) {
+                transactionIds.accumulateAndGet(record.getTransactionId(), Math::max);
+                if (record.isAbort()) {
+                    aborted.add(record.getTransactionId());
+                }
+            }
+        }
+    }
+
+    // A snapshot holds the whole of every table, so it replaces the seed data rather than merging into it
+    private int replayFile(Path file, boolean isSnapshot, Set<Long> aborted) throws IOException {
+        int[] applied = {0};
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            DataInputStream data = new DataInputStream(in);
+            transactionTemplate.executeWithoutResult(status -> {
+                if (isSnapshot) {
+                    jdbcTemplate.update("delete from follow");
+                    jdbcTemplate.update("delete from message");
+                    jdbcTemplate.update("delete from account");
+                }
+                WalRecord record;
+                while ((record = readFramed(data, file)) != null) {
+                    if (record.isAbort() || aborted.contains(record.getTransactionId())) {
+                        continue;
+                    }
+                    try {
+                        record.apply(jdbcTemplate);
+                        applied[0]++;
+                    } catch (RuntimeException e) {
+                        logger.warn("Skipping write-ahead log record {} in {}: {}", record, file, e.getMessage());
+                    }
+                }
+            });
+        }
+        return applied[0];
+    }
+
+    private void restartSequence(String sequence, String nextIdQuery) {
+        Long nextId = jdbcTemplate.queryForObject(nextIdQuery, Long.class);
+        jdbcTemplate.execute("alter sequence " + sequence + " restart with " + nextId);
+    }
+
+    // Returns the next record, or null at the end of the written part of the file or at a damaged record
+    private static WalRecord readFramed(DataInputStream in, Path file) {
+        try {
+            int length = in.readInt();
+            if (length <= 0) {
+                return null;
+            }
+            int checksum = in.readInt();
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                logger.warn("Checksum mismatch in {}, ignoring the rest of the file", file);
+                return null;
+            }
+            return WalRecord.read(new DataInputStream(new ByteArrayInputStream(payload)));
+        } catch (EOFException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeFramed(DataOutputStream out, WalRecord record) {
+        try {
+            byte[] payload = record.toBytes();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Segments and snapshots in the directory, in replay order: by id, with a snapshot before the segment it starts
+    private List<Path> listFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(path -> fileId(path) >= 0).forEach(files::add);
+        }
+        files.sort((a, b) -> {
+            int byId = Long.compare(fileId(a), fileId(b));
+            if (byId != 0) {
+                return byId;
+            }
+            return Boolean.compare(!a.getFileName().toString().startsWith("snapshot-"),
+                    !b.getFileName().toString().startsWith("snapshot-"));
+        });
+        return files;
+    }
+
+    private static long fileId(Path file) {
+        String name = file.getFileName().toString();
+        Matcher matcher = SEGMENT_FILE.matcher(name);
+        if (!matcher.matches()) {
+            matcher = SNAPSHOT_FILE.matcher(name);
+            if (!matcher.matches()) {
+                return -1;
+            }
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+}
@@ -1,3 +1,4 @@
+drop table if exists follow;
 drop table if exists message;
 drop table if exists account;
 create table account (
@@ -12,6 +13,18 @@ create table message (
     timePostedEpoch bigint,
     foreign key (postedBy) references account(accountId)
 );
+-- Per-account timelines are read newest first, so each page is a range scan of this index
+create index message_postedBy_time_idx on message (postedBy, timePostedEpoch desc, messageId desc);
+-- Home timelines read the newest messages of a set of accounts in message id order
+create index message_postedBy_id_idx on message (postedBy, messageId desc);
+create table follow (
+    followerId int not null,
+    followeeId int not null,
+    primary key (followerId, followeeId),
+    foreign key (followerId) references account(accountId) on delete cascade,
+    foreign key (followeeId) references account(accountId) on delete cascade
+);
+create index follow_followee_idx on follow (followeeId);
 
 -- Starting test values with ids of 9999 to avoid test issues
 insert into account values (9999, 'testuser1', 'password');
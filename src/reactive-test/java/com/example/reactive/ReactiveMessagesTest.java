@@ -0,0 +1,222 @@
+package com.example.reactive;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.SocialMediaApp;
+import com.example.entity.Message;
+import com.example.search.MessageSearchIndex;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ReactiveMessagesTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app under the reactive profile, and create a new
+     * webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--spring.profiles.active=reactive"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON array of the seeded messages, in message id order
+     */
+    @Test
+    public void getAllMessagesReactive() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9996, 9996, "test message 3", 1669947792L));
+        expectedResult.add(new Message(9997, 9997, "test message 2", 1669947792L));
+        expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        List<Message> actualResult = objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/9999/messages with Accept: application/x-ndjson
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: one JSON message per line
+     */
+    @Test
+    public void streamMessagesForUserReactive() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages"))
+                .header("Accept", "application/x-ndjson")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        Message expectedResult = new Message(9999, 9999, "test message 1", 1669947792L);
+        Message actualResult = objectMapper.readValue(response.body().trim(), Message.class);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages with an unknown postedBy
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void createMessageUnknownUserReactive() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":5050,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}";
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+
+    /**
+     * Sending two http requests to POST localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the new messages, with consecutive ids from one reserved block
+     */
+    @Test
+    public void createMessagesReactiveShareIdBlock() throws IOException, InterruptedException {
+        Message first = objectMapper.readValue(postMessage("first message").body(), Message.class);
+        Message second = objectMapper.readValue(postMessage("second message").body(), Message.class);
+        Assertions.assertEquals(first.getMessageId() + 1, second.getMessageId());
+    }
+
+    /**
+     * Sending an http request to PATCH localhost:8080/messages/9999, then searching the index for the new text
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: 1; the reactive write reached the search index through its event
+     */
+    @Test
+    public void updateMessageReactiveReachesSearch() throws IOException, InterruptedException {
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"reactive update\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals("1", response.body());
+
+        List<Integer> hits = app.getBean(MessageSearchIndex.class).search("reactive", 10);
+        Assertions.assertEquals(List.of(9999), hits);
+    }
+
+    /**
+     * Sending DELETE localhost:8080/messages/9999 twice
+     *
+     * Expected Response:
+     *  Status Code: 200 both times
+     *  Response Body: 1, then empty
+     */
+    @Test
+    public void deleteMessageReactive() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .DELETE()
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals("1", response.body());
+        response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals("", response.body());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages without a timePostedEpoch, then GET
+     * localhost:8080/messages/{id}
+     *
+     * Expected Response:
+     *  Status Code: 200 for both
+     *  Response Body: the message, stored without a time posted
+     */
+    @Test
+    public void createUndatedMessageReactive() throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\": \"undated message\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), response.body());
+        Message created = objectMapper.readValue(response.body(), Message.class);
+
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + created.getMessageId()))
+                .build();
+        response = webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        Message expectedResult = new Message(created.getMessageId(), 9999, "undated message", null);
+        Assertions.assertEquals(expectedResult, objectMapper.readValue(response.body(), Message.class));
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/login under the reactive profile
+     *
+     * Expected Response:
+     *  Status Code: 404; the blocking account routes are not served on the event loop
+     */
+    @Test
+    public void accountRoutesNotServedReactive() throws IOException, InterruptedException {
+        HttpRequest loginRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"testuser1\",\"password\":\"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(404, webClient.send(loginRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    private HttpResponse<String> postMessage(String text) throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\": \"" + text + "\",\"timePostedEpoch\": 1669947792}";
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.reactive;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Keeps the JDBC DataSource under the "reactive" profile. Spring Boot backs off its own DataSource once an R2DBC
+ * ConnectionFactory exists, but everything outside ReactiveMessageController (JPA, the change log, the search
+ * index rebuild, the event listeners) still reads and writes through JDBC. Both point at the same in-memory
+ * database, so they see each other's writes.
+ */
+@Configuration
+@Profile("reactive")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
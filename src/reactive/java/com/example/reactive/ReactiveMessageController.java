@@ -0,0 +1,133 @@
+package com.example.reactive;
+
+import com.example.entity.Message;
+import com.example.event.MessageEvent;
+import com.example.service.AccountIdRegistry;
+import com.example.service.MessageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * WebFlux version of the message routes in MessageController, served instead of them under the "reactive"
+ * profile. Responses match the servlet controller's; list routes stream, and with Accept: application/x-ndjson
+ * each message is written as soon as it is read, at the pace the client consumes them.
+ *
+ * Writes publish the same MessageEvents as MessageService, so the search index, timelines, change log and live
+ * feeds follow them. Listeners may block (the write-ahead log waits for the disk), so events are published on
+ * the bounded elastic scheduler rather than the event loop.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveMessageController {
+
+    // Rows requested from the database at a time while streaming a list, however much the client asks for
+    private static final int PREFETCH = 256;
+
+    private final ReactiveMessageRepository messageRepository;
+    private final AccountIdRegistry accountIdRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public ReactiveMessageController(ReactiveMessageRepository messageRepository, AccountIdRegistry accountIdRegistry,
+                                     ApplicationEventPublisher eventPublisher) {
+        this.messageRepository = messageRepository;
+        this.accountIdRegistry = accountIdRegistry;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Endpoint to stream all messages
+    @GetMapping(value = "/messages", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Message> getAllMessages() {
+        return messageRepository.findAll().limitRate(PREFETCH);
+    }
+
+    // Endpoint to stream the messages posted by a user
+    @GetMapping(value = "/accounts/{accountId}/messages",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Message> getMessagesByAccountId(@PathVariable Integer accountId) {
+        return messageRepository.findByPostedBy(accountId).limitRate(PREFETCH);
+    }
+
+    // Endpoint to retrieve a message by ID; an unknown ID is a 200 with an empty body
+    @GetMapping("/messages/{id}")
+    public Mono<ResponseEntity<Message>> getMessageById(@PathVariable Integer id) {
+        return messageRepository.findById(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.ok().build());
+    }
+
+    // Endpoint to create a new message
+    @PostMapping("/messages")
+    public Mono<ResponseEntity<?>> createMessage(@RequestBody Message message) {
+        return Mono.defer(() -> {
+                    MessageService.validateMessageText(message.getMessageText());
+                    return accountExists(message.getPostedBy());
+                })
+                .flatMap(exists -> exists
+                        ? messageRepository.insert(message)
+                        : Mono.error(new IllegalArgumentException("User not found.")))
+                .flatMap(createdMessage -> publish(MessageEvent.created(createdMessage)).thenReturn(createdMessage))
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST)));
+    }
+
+    // Endpoint to update a message by ID, returning the number of rows updated
+    @PatchMapping("/messages/{id}")
+    public Mono<ResponseEntity<?>> updateMessage(@PathVariable Integer id, @RequestBody Message updatedMessage) {
+        return Mono.defer(() -> {
+                    MessageService.validateMessageText(updatedMessage.getMessageText());
+                    return messageRepository.updateMessageText(id, updatedMessage.getMessageText());
+                })
+                .flatMap(postedBy -> publish(MessageEvent.updated(id, postedBy, updatedMessage.getMessageText()))
+                        .thenReturn(1))
+                .defaultIfEmpty(0)
+                .<ResponseEntity<?>>map(rowsUpdated -> rowsUpdated > 0
+                        ? ResponseEntity.ok(rowsUpdated)
+                        : new ResponseEntity<>("Message not found.", HttpStatus.BAD_REQUEST))
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST)));
+    }
+
+    // Endpoint to delete a message by ID; the count when it existed, otherwise an empty body
+    @DeleteMapping("/messages/{id}")
+    public Mono<ResponseEntity<?>> deleteMessage(@PathVariable Integer id) {
+        return messageRepository.deleteById(id)
+                .flatMap(postedBy -> publish(MessageEvent.deleted(id, postedBy)).thenReturn(1))
+                .defaultIfEmpty(0)
+                .<ResponseEntity<?>>map(rowsDeleted -> rowsDeleted > 0
+                        ? ResponseEntity.ok(rowsDeleted)
+                        : ResponseEntity.ok(""));
+    }
+
+    // Publishes a message event off the event loop, once the write has committed
+    private Mono<Void> publish(MessageEvent event) {
+        return Mono.fromRunnable(() -> eventPublisher.publishEvent(event))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    // Known account ids are answered from memory; anything else is a non-blocking lookup
+    private Mono<Boolean> accountExists(Integer accountId) {
+        if (accountId == null) {
+            return Mono.just(false);
+        }
+        if (accountIdRegistry.contains(accountId)) {
+            return Mono.just(true);
+        }
+        return messageRepository.accountExists(accountId)
+                .doOnNext(exists -> {
+                    if (exists) {
+                        accountIdRegistry.add(accountId);
+                    }
+                });
+    }
+}
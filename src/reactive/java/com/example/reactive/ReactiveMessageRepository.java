@@ -0,0 +1,173 @@
+package com.example.reactive;
+
+import com.example.entity.Message;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Non-blocking access to the message table over R2DBC, for the "reactive" profile.
+ *
+ * Queries are plain SQL through DatabaseClient: Message is mapped for JPA, and Spring Data R2DBC's default
+ * naming (message_id) does not match the existing camelCase columns. Updates and deletes read the author with
+ * select ... for update and then write, in one R2DBC transaction, the same way MessageService does over JPA.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveMessageRepository {
+
+    private static final String SELECT_MESSAGE = "select messageId, postedBy, messageText, timePostedEpoch from message ";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final int allocationSize;
+
+    // Current block of reserved ids: nextId up to (not including) blockEnd
+    private final ReentrantLock idLock = new ReentrantLock();
+    private long nextId;
+    private long blockEnd;
+
+    @Autowired
+    public ReactiveMessageRepository(DatabaseClient databaseClient, ConnectionFactory connectionFactory,
+                                     @Value("${spring.jpa.properties.app.id.allocation_size:50}") int allocationSize) {
+        this.databaseClient = databaseClient;
+        // Kept out of the context: a second transaction manager bean would make the services' @Transactional ambiguous
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+        this.allocationSize = allocationSize;
+    }
+
+    // Streams every message in message ID order; rows are fetched as the subscriber requests them
+    public Flux<Message> findAll() {
+        return databaseClient.sql(SELECT_MESSAGE + "order by messageId")
+                .map(this::toMessage)
+                .all();
+    }
+
+    // Finds a single message by ID
+    public Mono<Message> findById(Integer messageId) {
+        return databaseClient.sql(SELECT_MESSAGE + "where messageId = :messageId")
+                .bind("messageId", messageId)
+                .map(this::toMessage)
+                .one();
+    }
+
+    // Streams an account's messages in message ID order
+    public Flux<Message> findByPostedBy(Integer accountId) {
+        return databaseClient.sql(SELECT_MESSAGE + "where postedBy = :accountId order by messageId")
+                .bind("accountId", accountId)
+                .map(this::toMessage)
+                .all();
+    }
+
+    // Inserts a message and returns it with its new ID
+    public Mono<Message> insert(Message message) {
+        return allocateId()
+                .flatMap(messageId -> {
+                    DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("insert into message (messageId, "
+                                    + "postedBy, messageText, timePostedEpoch) values (:messageId, :postedBy, "
+                                    + ":messageText, :timePostedEpoch)")
+                            .bind("messageId", messageId)
+                            .bind("postedBy", message.getPostedBy())
+                            .bind("messageText", message.getMessageText());
+                    // R2DBC rejects null in bind(); an undated message is accepted like on the servlet path
+                    insert = message.getTimePostedEpoch() == null
+                            ? insert.bindNull("timePostedEpoch", Long.class)
+                            : insert.bind("timePostedEpoch", message.getTimePostedEpoch());
+                    return insert.fetch()
+                            .rowsUpdated()
+                            .map(rows -> new Message(messageId, message.getPostedBy(), message.getMessageText(),
+                                    message.getTimePostedEpoch()));
+                });
+    }
+
+    // Changes a message's text, returning its author, or nothing if the message does not exist. The author is read
+    // with the row locked, in the same transaction as the update.
+    public Mono<Integer> updateMessageText(Integer messageId, String messageText) {
+        return lockPostedBy(messageId)
+                .flatMap(postedBy -> databaseClient.sql("update message set messageText = :messageText "
+                                + "where messageId = :messageId")
+                        .bind("messageText", messageText)
+                        .bind("messageId", messageId)
+                        .fetch()
+                        .rowsUpdated()
+                        .filter(rows -> rows > 0)
+                        .map(rows -> postedBy))
+                .as(transactionalOperator::transactional);
+    }
+
+    // Deletes a message, returning its author, or nothing if the message does not exist. The author is read with
+    // the row locked, in the same transaction as the delete.
+    public Mono<Integer> deleteById(Integer messageId) {
+        return lockPostedBy(messageId)
+                .flatMap(postedBy -> databaseClient.sql("delete from message where messageId = :messageId")
+                        .bind("messageId", messageId)
+                        .fetch()
+                        .rowsUpdated()
+                        .filter(rows -> rows > 0)
+                        .map(rows -> postedBy))
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<Integer> lockPostedBy(Integer messageId) {
+        return databaseClient.sql("select postedBy from message where messageId = :messageId for update")
+                .bind("messageId", messageId)
+                .map(row -> row.get("postedBy", Integer.class))
+                .one();
+    }
+
+    // Checks whether an account exists
+    public Mono<Boolean> accountExists(Integer accountId) {
+        return databaseClient.sql("select 1 from account where accountId = :accountId")
+                .bind("accountId", accountId)
+                .map(row -> Boolean.TRUE)
+                .first()
+                .hasElement();
+    }
+
+    // Hands out ids from a block of allocationSize values reserved with a single sequence call, the way
+    // MessageWriteBehind and Hibernate's pooled-lo generator do, so the writers never hand out the same id
+    private Mono<Integer> allocateId() {
+        Integer messageId = takeId(null);
+        if (messageId != null) {
+            return Mono.just(messageId);
+        }
+        return databaseClient.sql("select next value for message_seq")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(this::takeId);
+    }
+
+    // Takes the next id of the current block, first starting a new block at blockStart if the current one is used
+    // up; returns null when the block is used up and no new one is given
+    private Integer takeId(Long blockStart) {
+        idLock.lock();
+        try {
+            if (nextId == blockEnd) {
+                if (blockStart == null) {
+                    return null;
+                }
+                nextId = blockStart;
+                blockEnd = blockStart + allocationSize;
+            }
+            // A concurrent insert may have started a block meanwhile; its ids are used and this block is skipped
+            return Math.toIntExact(nextId++);
+        } finally {
+            idLock.unlock();
+        }
+    }
+
+    private Message toMessage(Row row) {
+        return new Message(row.get("messageId", Integer.class), row.get("postedBy", Integer.class),
+                row.get("messageText", String.class), row.get("timePostedEpoch", Long.class));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+public class ConditionalRequestsTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient for interacting locally
+     * on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path));
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> patch(String ifMatch, String text) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"" + text + "\"}"))
+                .header("Content-Type", "application/json")
+                .header("If-Match", ifMatch)
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Reading localhost:8080/messages/9999, then reading it again with If-None-Match set to its ETag, before and
+     * after the message is updated
+     *
+     * Expected Response:
+     *  Status Code: 304 with an empty body while the message is unchanged, then 200 with a new ETag
+     */
+    @Test
+    public void getMessageByIdIfNoneMatch() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/messages/9999", null);
+        Assertions.assertEquals(200, response.statusCode());
+        String eTag = response.headers().firstValue("ETag").orElseThrow();
+
+        response = get("/messages/9999", eTag);
+        Assertions.assertEquals(304, response.statusCode());
+        Assertions.assertEquals("", response.body());
+
+        Assertions.assertEquals(200, patch("*", "updated").statusCode());
+        response = get("/messages/9999", eTag);
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertNotEquals(eTag, response.headers().firstValue("ETag").orElseThrow());
+    }
+
+    /**
+     * Sending two http requests to PATCH localhost:8080/messages/9999 with If-Match set to the ETag read before
+     * either of them
+     *
+     * Expected Response:
+     *  Status Code: 200 for the first, 412 for the second, which would overwrite a change it has not seen
+     */
+    @Test
+    public void updateMessageIfMatch() throws IOException, InterruptedException {
+        String eTag = get("/messages/9999", null).headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> response = patch(eTag, "first");
+        Assertions.assertEquals(200, response.statusCode());
+        response = patch(eTag, "second");
+        int status = response.statusCode();
+        Assertions.assertEquals(412, status, "Expected Status Code 412 - Actual Code was: " + status);
+        Assertions.assertTrue(get("/messages/9999", null).body().contains("first"));
+    }
+
+    /**
+     * Reading localhost:8080/accounts/9999 and localhost:8080/accounts/9999/messages, then reading them again with
+     * If-None-Match, before and after the account posts a message
+     *
+     * Expected Response:
+     *  Status Code: 304 for both while unchanged; then 200 for the message list, and still 304 for the account
+     */
+    @Test
+    public void getAccountAndMessagesByAccountIdIfNoneMatch() throws IOException, InterruptedException {
+        String accountETag = get("/accounts/9999", null).headers().firstValue("ETag").orElseThrow();
+        String messagesETag = get("/accounts/9999/messages", null).headers().firstValue("ETag").orElseThrow();
+        Assertions.assertEquals(304, get("/accounts/9999", accountETag).statusCode());
+        Assertions.assertEquals(304, get("/accounts/9999/messages", messagesETag).statusCode());
+
+        String json = "{\"postedBy\":9999,\"messageText\": \"hello\",\"timePostedEpoch\": 1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpResponse<String> response = get("/accounts/9999/messages", messagesETag);
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertTrue(response.body().contains("hello"));
+        Assertions.assertEquals(304, get("/accounts/9999", accountETag).statusCode());
+    }
+}
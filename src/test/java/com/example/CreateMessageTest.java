@@ -6,6 +6,11 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +18,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
 
+import com.example.entity.Account;
 import com.example.entity.Message;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -126,4 +132,76 @@ public class CreateMessageTest {
         int status = response.statusCode();
         Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
     }
+
+    /**
+     * Sending two http requests to POST localhost:8080/messages for a known author: the author is known without a
+     * query, so the second message costs only its insert.
+     *
+     * Expected Response:
+     *  Status Code: 200 both times
+     */
+    @Test
+    public void createMessageKnownAuthorIsNotLookedUp() throws IOException, InterruptedException {
+        Statistics statistics = app.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        HttpResponse<String> response = webClient.send(postMessageRequest(9999, "first message"), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+
+        statistics.clear();
+        response = webClient.send(postMessageRequest(9999, "second message"), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount(), "Expected only the insert to run.");
+        Assertions.assertEquals(0, statistics.getEntityLoadCount(), "Expected the author not to be loaded.");
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/register, then POST localhost:8080/messages for the new account
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of message object posted by the new account
+     */
+    @Test
+    public void createMessageNewlyRegisteredAuthor() throws IOException, InterruptedException {
+        HttpRequest registerRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"newauthor\",\"password\":\"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(registerRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Integer accountId = objectMapper.readValue(response.body(), Account.class).getAccountId();
+
+        response = webClient.send(postMessageRequest(accountId, "hello from a new account"), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Message actualResult = objectMapper.readValue(response.body(), Message.class);
+        Assertions.assertEquals(accountId, actualResult.getPostedBy());
+    }
+
+    /**
+     * Sending two http requests to POST localhost:8080/messages with a user id that doesnt exist in db: an unknown
+     * author is checked each time, never remembered as existing, and its row is never loaded.
+     *
+     * Expected Response:
+     *  Status Code: 400 both times
+     */
+    @Test
+    public void createMessageUserNotInDbRepeated() throws IOException, InterruptedException {
+        Statistics statistics = app.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        for (int i = 0; i < 2; i++) {
+            HttpResponse<String> response = webClient.send(postMessageRequest(5050, "hello message"), HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(400, response.statusCode(), "Expected Status Code 400 - Actual Code was: " + response.statusCode());
+        }
+        Assertions.assertEquals(0, statistics.getEntityLoadCount(), "Expected the author check not to load an account.");
+        Assertions.assertEquals(0, statistics.getEntityInsertCount(), "Expected no message to be inserted.");
+    }
+
+    private HttpRequest postMessageRequest(Integer postedBy, String messageText) {
+        String json = "{\"postedBy\":" + postedBy + ",\"messageText\": \"" + messageText + "\",\"timePostedEpoch\": 1669947792}";
+        return HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+    }
 }
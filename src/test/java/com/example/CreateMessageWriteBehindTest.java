@@ -0,0 +1,297 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.dto.MessageChange;
+import com.example.dto.MessageChangePage;
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.service.AccountService;
+import com.example.service.MessageService;
+import com.example.service.MessageWriteBehind;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CreateMessageWriteBehindTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app with write-behind posting enabled (a queue of two
+     * messages, flushed only when a message is read back for an update), and create a new webClient and
+     * ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--app.messages.write-behind.enabled=true",
+                "--app.messages.write-behind.queue-capacity=2", "--app.messages.write-behind.batch-size=100",
+                "--app.messages.write-behind.flush-interval-ms=60000"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> postMessage(String text) throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\": \"" + text + "\",\"timePostedEpoch\": 1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages, then GET localhost:8080/messages/1 before the
+     * message has been written
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the queued message, with its assigned id
+     */
+    @Test
+    public void createMessageReadBeforeWrite() throws IOException, InterruptedException {
+        HttpResponse<String> response = postMessage("hello message");
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        Message expectedResult = new Message(1, 9999, "hello message", 1669947792L);
+        Message actualResult = objectMapper.readValue(response.body(), Message.class);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .build();
+        HttpResponse<String> getResponse = webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, getResponse.statusCode());
+        actualResult = objectMapper.readValue(getResponse.body(), Message.class);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+
+    /**
+     * Sending three http requests to POST localhost:8080/messages while the queue holds two
+     *
+     * Expected Response:
+     *  Status Code: 429 for the third
+     */
+    @Test
+    public void createMessageQueueFull() throws IOException, InterruptedException {
+        Assertions.assertEquals(200, postMessage("first").statusCode());
+        Assertions.assertEquals(200, postMessage("second").statusCode());
+        int status = postMessage("third").statusCode();
+        Assertions.assertEquals(429, status, "Expected Status Code 429 - Actual Code was: " + status);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages, then PATCH localhost:8080/messages/1 while it is
+     * still queued
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: 1 (the queued message is written before the update)
+     */
+    @Test
+    public void updateQueuedMessage() throws IOException, InterruptedException {
+        Assertions.assertEquals(200, postMessage("hello message").statusCode());
+        HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"updated message\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(patchMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        Assertions.assertEquals("1", response.body());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages without a timePostedEpoch, writing the queue, then
+     * GET localhost:8080/accounts/9999/messages, which only sees written messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the account's messages, including the new one with no timePostedEpoch
+     */
+    @Test
+    public void createMessageWithoutTimePostedIsWritten() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\": \"undated message\"}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+
+        app.getBean(MessageWriteBehind.class).flush();
+        Assertions.assertEquals(0, app.getBean(MessageWriteBehind.class).getQueuedCount());
+
+        HttpRequest getMessagesRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages"))
+                .build();
+        HttpResponse<String> getResponse = webClient.send(getMessagesRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, getResponse.statusCode());
+        Message[] messages = objectMapper.readValue(getResponse.body(), Message[].class);
+        Message expectedResult = new Message(1, 9999, "undated message", null);
+        Assertions.assertTrue(Arrays.asList(messages).contains(expectedResult),
+                "Expected " + expectedResult + " in " + getResponse.body());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages, then GET localhost:8080/messages/changes?accountId=9999
+     * before and after the queue is written
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: no change for the queued message until it is written, then its creation as the latest change
+     */
+    @Test
+    public void createdMessageReachesChangesOnceWritten() throws IOException, InterruptedException {
+        Assertions.assertEquals(200, postMessage("hello message").statusCode());
+
+        HttpRequest changesRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/changes?accountId=9999"))
+                .build();
+        HttpResponse<String> response = webClient.send(changesRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        List<MessageChange> changes = objectMapper.readValue(response.body(), MessageChangePage.class).getChanges();
+        Assertions.assertTrue(changes.stream().noneMatch(change -> change.getMessageId() == 1),
+                "Expected no change for message 1, but was " + response.body());
+
+        app.getBean(MessageWriteBehind.class).flush();
+
+        response = webClient.send(changesRequest, HttpResponse.BodyHandlers.ofString());
+        changes = objectMapper.readValue(response.body(), MessageChangePage.class).getChanges();
+        Message expectedResult = new Message(1, 9999, "hello message", 1669947792L);
+        Assertions.assertEquals(expectedResult, changes.get(changes.size() - 1).getMessage(),
+                "Expected the creation of message 1 last, but was " + response.body());
+    }
+
+    /**
+     * Queueing a message for a new account, deleting the account before the message is written, then writing
+     * the queue, which drops the message, and GET localhost:8080/messages/search?q=vanishing and
+     * localhost:8080/messages/changes for the account
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: no match and no changes; the dropped message never reached the listeners
+     */
+    @Test
+    public void droppedMessageIsNeverPublished() throws IOException, InterruptedException {
+        String registerJson = "{\"username\":\"shortlived\",\"password\":\"password\"}";
+        HttpRequest registerRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString(registerJson))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> registerResponse = webClient.send(registerRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, registerResponse.statusCode());
+        int accountId = objectMapper.readValue(registerResponse.body(), Account.class).getAccountId();
+
+        String json = "{\"postedBy\":" + accountId + ",\"messageText\": \"vanishing message\",\"timePostedEpoch\": 1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        Assertions.assertTrue(app.getBean(AccountService.class).deleteAccountById(accountId));
+        app.getBean(MessageWriteBehind.class).flush();
+
+        HttpRequest searchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/search?q=vanishing"))
+                .build();
+        HttpResponse<String> searchResponse = webClient.send(searchRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, searchResponse.statusCode());
+        Assertions.assertFalse(searchResponse.body().contains("vanishing message"), searchResponse.body());
+
+        HttpRequest changesRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/changes?accountId=" + accountId))
+                .build();
+        HttpResponse<String> changesResponse = webClient.send(changesRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, changesResponse.statusCode());
+        Assertions.assertTrue(objectMapper.readValue(changesResponse.body(), MessageChangePage.class).getChanges().isEmpty(),
+                "Expected no changes, but was " + changesResponse.body());
+    }
+
+    private int registerAccount(String username) throws IOException, InterruptedException {
+        String registerJson = "{\"username\":\"" + username + "\",\"password\":\"password\"}";
+        HttpRequest registerRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString(registerJson))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> registerResponse = webClient.send(registerRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, registerResponse.statusCode());
+        return objectMapper.readValue(registerResponse.body(), Account.class).getAccountId();
+    }
+
+    /**
+     * Deleting a new account and posting a message for it while the delete has not committed yet
+     *
+     * Expected Response:
+     *  The post is refused with "User not found.", rather than queued and dropped later
+     */
+    @Test
+    public void postDuringAccountDeleteIsRefused() throws IOException, InterruptedException {
+        int accountId = registerAccount("deleting");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(app.getBean(PlatformTransactionManager.class));
+        transactionTemplate.executeWithoutResult(status -> {
+            Assertions.assertTrue(app.getBean(AccountService.class).deleteAccountById(accountId));
+            IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> app.getBean(MessageService.class).createMessage(new Message(accountId, "too late", 1669947792L)));
+            Assertions.assertEquals("User not found.", e.getMessage());
+        });
+        Assertions.assertEquals(0, app.getBean(MessageWriteBehind.class).getQueuedCount());
+    }
+
+    /**
+     * Deleting a new account in a transaction that rolls back, then sending an http request to POST
+     * localhost:8080/messages for it
+     *
+     * Expected Response:
+     *  Status Code: 200; the account is known again once the delete rolls back
+     */
+    @Test
+    public void postAfterAccountDeleteRollsBack() throws IOException, InterruptedException {
+        int accountId = registerAccount("survivor");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(app.getBean(PlatformTransactionManager.class));
+        transactionTemplate.executeWithoutResult(status -> {
+            Assertions.assertTrue(app.getBean(AccountService.class).deleteAccountById(accountId));
+            status.setRollbackOnly();
+        });
+
+        String json = "{\"postedBy\":" + accountId + ",\"messageText\": \"still here\",\"timePostedEpoch\": 1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+    }
+}
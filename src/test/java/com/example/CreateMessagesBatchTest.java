@@ -0,0 +1,95 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessageBatchResult;
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CreateMessagesBatchTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with one valid message, one message from an
+     * unknown user and one message with empty text
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: one result per message, in request order; only the valid message is created
+     */
+    @Test
+    public void createMessagesBatchPartiallyValid() throws IOException, InterruptedException {
+        String json = "[{\"postedBy\":9999,\"messageText\":\"hello message\",\"timePostedEpoch\":1669947792}," +
+                "{\"postedBy\":5050,\"messageText\":\"hello message\",\"timePostedEpoch\":1669947792}," +
+                "{\"postedBy\":9999,\"messageText\":\"\",\"timePostedEpoch\":1669947792}]";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<MessageBatchResult> actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<MessageBatchResult>>(){});
+        Assertions.assertEquals(3, actualResult.size());
+        Assertions.assertEquals(MessageBatchResult.CREATED, actualResult.get(0).getStatus());
+        Assertions.assertEquals(new Message(1, 9999, "hello message", 1669947792L), actualResult.get(0).getMessage());
+        Assertions.assertEquals(MessageBatchResult.REJECTED, actualResult.get(1).getStatus());
+        Assertions.assertEquals("User not found.", actualResult.get(1).getError());
+        Assertions.assertEquals(MessageBatchResult.REJECTED, actualResult.get(2).getStatus());
+        Assertions.assertEquals("Message text cannot be empty.", actualResult.get(2).getError());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with an empty array
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void createMessagesBatchEmpty() throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString("[]"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+}
@@ -5,6 +5,14 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -79,4 +87,63 @@ public class DeleteMessageByMessageIdTest {
         String actualResult = response.body().toString();
         Assertions.assertTrue(actualResult.equals(""), "Expected empty response body, but actually " + actualResult + ".");
     }
+
+    /**
+     * Sending DELETE localhost:8080/messages/9999 twice: the first locks the row to read its author and deletes it
+     * in one more statement; the second finds nothing and runs no delete.
+     *
+     * Expected Response:
+     *  Status Code: 200 both times
+     *  Response Body: 1, then empty
+     */
+    @Test
+    public void deleteMessageStatements() throws IOException, InterruptedException {
+        Statistics statistics = app.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .DELETE()
+                .build();
+
+        statistics.clear();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Assertions.assertEquals("1", response.body());
+        Assertions.assertEquals(2, statistics.getPrepareStatementCount(), "Expected the locked author read and the delete.");
+        Assertions.assertEquals(0, statistics.getEntityLoadCount(), "Expected the delete not to load the message.");
+
+        statistics.clear();
+        response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Assertions.assertEquals("", response.body());
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount(), "Expected only the author read.");
+    }
+
+    /**
+     * Sending several concurrent DELETE localhost:8080/messages/9999 requests
+     *
+     * Expected Response:
+     *  Status Code: 200 for every request
+     *  Response Body: 1 for exactly one of them, empty for the rest
+     */
+    @Test
+    public void concurrentDeletesRemoveMessageOnce() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .DELETE()
+                .build();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            responses.add(webClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        int deleted = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            Assertions.assertEquals(200, response.join().statusCode());
+            if (response.join().body().equals("1")) {
+                deleted++;
+            } else {
+                Assertions.assertEquals("", response.join().body());
+            }
+        }
+        Assertions.assertEquals(1, deleted, "Expected exactly one delete to remove the message.");
+    }
 }
@@ -0,0 +1,155 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessagePage;
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class HomeTimelineTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> follow(int followerId, int followeeId) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/" + followerId + "/following/" + followeeId))
+                .PUT(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    private void postMessage(int postedBy, String text) throws IOException, InterruptedException {
+        String json = "{\"postedBy\":" + postedBy + ",\"messageText\": \"" + text + "\",\"timePostedEpoch\": 1669947792}";
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json"));
+        Assertions.assertEquals(200, response.statusCode());
+    }
+
+    private MessagePage getTimeline(String query) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/timeline" + query)));
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        return objectMapper.readValue(response.body(), MessagePage.class);
+    }
+
+    /**
+     * Following two accounts, reading the timeline once so it is cached, posting messages from followed and
+     * unfollowed accounts, then sending an http request to GET localhost:8080/accounts/9999/timeline?limit=2
+     * and the page after it
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the followed accounts' messages, newest first, including ones fanned out after the first read
+     */
+    @Test
+    public void timelineShowsFollowedAccountsNewestFirst() throws IOException, InterruptedException {
+        Assertions.assertEquals(200, follow(9999, 9998).statusCode());
+        Assertions.assertEquals(200, follow(9999, 9996).statusCode());
+        getTimeline("");
+        postMessage(9998, "first");
+        postMessage(9997, "not followed");
+        postMessage(9996, "second");
+
+        MessagePage firstPage = getTimeline("?limit=2");
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9996, 9996, "test message 3", 1669947792L));
+        expectedResult.add(new Message(3, 9996, "second", 1669947792L));
+        Assertions.assertEquals(expectedResult, firstPage.getMessages(), "Expected="+expectedResult + ", Actual="+firstPage);
+        Assertions.assertEquals("3", firstPage.getNextCursor());
+
+        MessagePage secondPage = getTimeline("?limit=2&after=" + firstPage.getNextCursor());
+        expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(1, 9998, "first", 1669947792L));
+        Assertions.assertEquals(expectedResult, secondPage.getMessages(), "Expected="+expectedResult + ", Actual="+secondPage);
+        Assertions.assertNull(secondPage.getNextCursor());
+    }
+
+    /**
+     * Following an account, then unfollowing it and sending an http request to GET
+     * localhost:8080/accounts/9999/timeline
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: an empty page
+     */
+    @Test
+    public void unfollowRemovesMessagesFromTimeline() throws IOException, InterruptedException {
+        Assertions.assertEquals(200, follow(9999, 9997).statusCode());
+        Assertions.assertEquals(1, getTimeline("").getMessages().size());
+
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/following/9997"))
+                .DELETE());
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals("1", response.body());
+        Assertions.assertTrue(getTimeline("").getMessages().isEmpty());
+    }
+
+    /**
+     * Sending http requests to PUT localhost:8080/accounts/9999/following/9999 and
+     * localhost:8080/accounts/9999/following/1234
+     *
+     * Expected Response:
+     *  Status Code: 400 for both: accounts cannot follow themselves or accounts that do not exist
+     */
+    @Test
+    public void followSelfOrUnknownAccount() throws IOException, InterruptedException {
+        int status = follow(9999, 9999).statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+        status = follow(9999, 1234).statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1234/timeline
+     *
+     * Expected Response:
+     *  Status Code: 404
+     */
+    @Test
+    public void timelineOfUnknownAccount() throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/1234/timeline")));
+        int status = response.statusCode();
+        Assertions.assertEquals(404, status, "Expected Status Code 404 - Actual Code was: " + status);
+    }
+}
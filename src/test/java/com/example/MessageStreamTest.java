@@ -0,0 +1,242 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.example.feed.MessageFeed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MessageStreamTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    // Opens a stream and collects its lines on a background thread
+    private BlockingQueue<String> openStream(String path, String lastEventId) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        HttpResponse<Stream<String>> response = webClient.send(request.build(), HttpResponse.BodyHandlers.ofLines());
+        Assertions.assertEquals(200, response.statusCode());
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> response.body().forEach(lines::add));
+        reader.setDaemon(true);
+        reader.start();
+        return lines;
+    }
+
+    // Returns the next line starting with the prefix, skipping others, or fails after a few seconds
+    private String nextLine(BlockingQueue<String> lines, String prefix) throws InterruptedException {
+        while (true) {
+            String line = lines.poll(5, TimeUnit.SECONDS);
+            Assertions.assertNotNull(line, "No \"" + prefix + "\" line arrived");
+            if (line.startsWith(prefix)) {
+                return line.substring(prefix.length());
+            }
+        }
+    }
+
+    private Message send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = webClient.send(request.header("Content-Type", "application/json").build(),
+                HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        return response.body().startsWith("{") ? objectMapper.readValue(response.body(), Message.class) : null;
+    }
+
+    private Message postMessage(int postedBy, String text) throws IOException, InterruptedException {
+        String json = "{\"postedBy\":" + postedBy + ",\"messageText\": \"" + text + "\",\"timePostedEpoch\": 1669947792}";
+        return send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json)));
+    }
+
+    /**
+     * Opening GET localhost:8080/messages/stream, then creating, updating and deleting a message
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Stream: a "created", an "updated" and a "deleted" event for the message, in that order
+     */
+    @Test
+    public void streamMessagesCreateUpdateDelete() throws IOException, InterruptedException {
+        BlockingQueue<String> lines = openStream("/messages/stream", null);
+
+        Message created = postMessage(9999, "live");
+        send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + created.getMessageId()))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"live, edited\"}")));
+        send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + created.getMessageId()))
+                .DELETE());
+
+        Assertions.assertEquals("created", nextLine(lines, "event:"));
+        Assertions.assertEquals(created, objectMapper.readValue(nextLine(lines, "data:"), Message.class));
+        Assertions.assertEquals("updated", nextLine(lines, "event:"));
+        Message updated = objectMapper.readValue(nextLine(lines, "data:"), Message.class);
+        Assertions.assertEquals(created.getMessageId(), updated.getMessageId());
+        Assertions.assertEquals("live, edited", updated.getMessageText());
+        Assertions.assertEquals("deleted", nextLine(lines, "event:"));
+        Message deleted = objectMapper.readValue(nextLine(lines, "data:"), Message.class);
+        Assertions.assertEquals(created.getMessageId(), deleted.getMessageId());
+    }
+
+    /**
+     * Opening GET localhost:8080/accounts/9999/messages/stream, then posting from accounts 9998 and 9999
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Stream: only the message posted by 9999
+     */
+    @Test
+    public void streamMessagesForUserSkipsOtherAccounts() throws IOException, InterruptedException {
+        BlockingQueue<String> lines = openStream("/accounts/9999/messages/stream", null);
+
+        postMessage(9998, "someone else");
+        Message mine = postMessage(9999, "mine");
+
+        Assertions.assertEquals("created", nextLine(lines, "event:"));
+        Assertions.assertEquals(mine, objectMapper.readValue(nextLine(lines, "data:"), Message.class));
+    }
+
+    /**
+     * Posting two messages while a stream is open, then reconnecting with the Last-Event-ID of the first, and
+     * reconnecting with an id the server never sent
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Stream: the reconnected stream resumes with the second message; the other starts with a "resync" event
+     */
+    @Test
+    public void streamMessagesResumesFromLastEventId() throws IOException, InterruptedException {
+        BlockingQueue<String> lines = openStream("/messages/stream", null);
+        postMessage(9999, "first");
+        Message second = postMessage(9999, "second");
+        String firstId = nextLine(lines, "id:");
+
+        BlockingQueue<String> resumed = openStream("/messages/stream", firstId);
+        Assertions.assertEquals("created", nextLine(resumed, "event:"));
+        Assertions.assertEquals(second, objectMapper.readValue(nextLine(resumed, "data:"), Message.class));
+
+        BlockingQueue<String> unknown = openStream("/messages/stream", "12345");
+        Assertions.assertEquals("resync", nextLine(unknown, "event:"));
+    }
+
+    /**
+     * Posting a message while a stream is open, restarting the app and posting more messages there, then
+     * reconnecting with the Last-Event-ID from before the restart
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Stream: a "resync" event, not the new process's events, even though its topic has passed that position
+     */
+    @Test
+    public void streamMessagesResyncsAcrossRestart() throws IOException, InterruptedException {
+        BlockingQueue<String> lines = openStream("/messages/stream", null);
+        postMessage(9999, "before restart");
+        String oldId = nextLine(lines, "id:");
+
+        SpringApplication.exit(app);
+        app = SpringApplication.run(SocialMediaApp.class);
+        Thread.sleep(500);
+        BlockingQueue<String> current = openStream("/messages/stream", null);
+        postMessage(9999, "after restart 1");
+        postMessage(9999, "after restart 2");
+        nextLine(current, "id:");
+        nextLine(current, "id:");
+
+        BlockingQueue<String> resumed = openStream("/messages/stream", oldId);
+        Assertions.assertEquals("resync", nextLine(resumed, "event:"));
+    }
+
+    /**
+     * With a single dispatch thread, opening GET localhost:8080/messages/stream from a client that never reads,
+     * posting enough messages to fill its connection, then opening a second stream and posting once more
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Stream: the second stream still gets its event; the stalled subscriber is dropped once a send to it has
+     *  blocked longer than the send timeout
+     */
+    @Test
+    public void streamMessagesSurvivesStalledSubscriber() throws IOException, InterruptedException {
+        SpringApplication.exit(app);
+        app = SpringApplication.run(SocialMediaApp.class, "--app.feed.dispatch-threads=1",
+                "--app.feed.send-timeout-ms=1000", "--app.feed.max-resyncs=1000000");
+        Thread.sleep(500);
+
+        try (Socket stalled = new Socket()) {
+            stalled.setReceiveBufferSize(1024);
+            stalled.connect(new InetSocketAddress("localhost", 8080));
+            stalled.getOutputStream().write(("GET /messages/stream HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Accept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            stalled.getOutputStream().flush();
+            Thread.sleep(500);
+            Assertions.assertEquals(1, app.getBean(MessageFeed.class).getSubscriberCount());
+
+            String text = "x".repeat(250);
+            StringBuilder batch = new StringBuilder("[");
+            for (int i = 0; i < 1000; i++) {
+                batch.append(i == 0 ? "" : ",").append("{\"postedBy\":9999,\"messageText\":\"").append(text)
+                        .append("\",\"timePostedEpoch\":1669947792}");
+            }
+            batch.append("]");
+            // Message ids stay below the seeded 9996-9999
+            for (int i = 0; i < 9; i++) {
+                send(HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:8080/messages/batch"))
+                        .POST(HttpRequest.BodyPublishers.ofString(batch.toString())));
+            }
+
+            // A blocked dispatch thread would hold this up until Tomcat's write timeout, a minute later
+            Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                BlockingQueue<String> lines = openStream("/messages/stream", null);
+                Message live = postMessage(9999, "still live");
+                Assertions.assertEquals("created", nextLine(lines, "event:"));
+                Assertions.assertEquals(live, objectMapper.readValue(nextLine(lines, "data:"), Message.class));
+            });
+            Assertions.assertEquals(1, app.getBean(MessageFeed.class).getSubscriberCount());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RetrieveAccountsTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Statistics statistics;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        statistics = app.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every account's id and username, without passwords; no Account entity is loaded
+     */
+    @Test
+    public void getAllAccountsWithoutPasswords() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts"))
+                .build();
+        statistics.clear();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        JsonNode accounts = objectMapper.readTree(response.body());
+        Assertions.assertEquals(4, accounts.size(), "Expected 4 accounts, but was " + response.body());
+        Assertions.assertEquals(9996, accounts.get(0).get("accountId").asInt());
+        Assertions.assertEquals("testuser4", accounts.get(0).get("username").asText());
+        for (JsonNode account : accounts) {
+            Assertions.assertFalse(account.has("password"), "Expected no password, but was " + account);
+        }
+        Assertions.assertEquals(0, statistics.getEntityLoadCount(), "Expected no Account entity to be loaded.");
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/9999
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the account's id and username, without the password; no Account entity is loaded
+     */
+    @Test
+    public void getAccountByIdWithoutPassword() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999"))
+                .build();
+        statistics.clear();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        JsonNode account = objectMapper.readTree(response.body());
+        Assertions.assertEquals(9999, account.get("accountId").asInt());
+        Assertions.assertEquals("testuser1", account.get("username").asText());
+        Assertions.assertFalse(account.has("password"), "Expected no password, but was " + account);
+        Assertions.assertEquals(0, statistics.getEntityLoadCount(), "Expected no Account entity to be loaded.");
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/5050 (account does not exist)
+     *
+     * Expected Response:
+     *  Status Code: 404
+     */
+    @Test
+    public void getAccountByIdNotFound() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/5050"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(404, status, "Expected Status Code 404 - Actual Code was: " + status);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessageChange;
+import com.example.dto.MessageChangePage;
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RetrieveMessageChangesTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return webClient.send(request.header("Content-Type", "application/json").build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private MessageChangePage getChanges(String query) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/changes" + query)));
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        return objectMapper.readValue(response.body(), MessageChangePage.class);
+    }
+
+    // The messages of the upserts in a page, and the ids of its tombstones as messages with only an id
+    private List<Message> summarize(MessageChangePage page) {
+        List<Message> summary = new ArrayList<Message>();
+        for (MessageChange change : page.getChanges()) {
+            summary.add(MessageChange.DELETE.equals(change.getType())
+                    ? new Message(change.getMessageId(), null, null, null)
+                    : change.getMessage());
+        }
+        return summary;
+    }
+
+    /**
+     * Syncing every message with GET localhost:8080/messages/changes, then posting, editing and deleting messages
+     * and sending GET localhost:8080/messages/changes?since={nextCursor}
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: first the seeded messages; then only the new message as it is now, and a tombstone for the
+     *  deleted one
+     */
+    @Test
+    public void getMessageChangesSinceCursor() throws IOException, InterruptedException {
+        MessageChangePage fullSync = getChanges("");
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9996, 9996, "test message 3", 1669947792L));
+        expectedResult.add(new Message(9997, 9997, "test message 2", 1669947792L));
+        expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        Assertions.assertEquals(expectedResult, summarize(fullSync), "Expected="+expectedResult + ", Actual="+fullSync);
+        Assertions.assertFalse(fullSync.isHasMore());
+
+        String json = "{\"postedBy\":9999,\"messageText\": \"hello\",\"timePostedEpoch\": 1669947792}";
+        Assertions.assertEquals(200, send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))).statusCode());
+        Assertions.assertEquals(200, send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"hello again\"}"))).statusCode());
+        Assertions.assertEquals(200, send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997"))
+                .DELETE()).statusCode());
+
+        MessageChangePage delta = getChanges("?since=" + fullSync.getNextCursor());
+        expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(1, 9999, "hello again", 1669947792L));
+        expectedResult.add(new Message(9997, null, null, null));
+        Assertions.assertEquals(expectedResult, summarize(delta), "Expected="+expectedResult + ", Actual="+delta);
+
+        MessageChangePage nothingNew = getChanges("?since=" + delta.getNextCursor());
+        Assertions.assertTrue(nothingNew.getChanges().isEmpty());
+        Assertions.assertEquals(delta.getNextCursor(), nothingNew.getNextCursor());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/changes?accountId=9997&limit=1
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the message posted by 9997
+     */
+    @Test
+    public void getMessageChangesForUser() throws IOException, InterruptedException {
+        MessageChangePage page = getChanges("?accountId=9997&limit=1");
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9997, 9997, "test message 2", 1669947792L));
+        Assertions.assertEquals(expectedResult, summarize(page), "Expected="+expectedResult + ", Actual="+page);
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages/changes?since=nonsense and
+     * localhost:8080/messages/changes?since=0:1, a cursor from some earlier run of the server
+     *
+     * Expected Response:
+     *  Status Code: 400 for the malformed cursor, 410 for the stale one
+     */
+    @Test
+    public void getMessageChangesBadCursor() throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/changes?since=nonsense")));
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+
+        response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/changes?since=0:1")));
+        status = response.statusCode();
+        Assertions.assertEquals(410, status, "Expected Status Code 410 - Actual Code was: " + status);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessagePage;
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RetrieveMessagesPageForUserTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/9999/messages?limit=1
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the account's only message, and no further cursor
+     */
+    @Test
+    public void getPageOfMessagesForUser() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages?limit=1"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        MessagePage actualResult = objectMapper.readValue(response.body().toString(), MessagePage.class);
+        Assertions.assertEquals(expectedResult, actualResult.getMessages(), "Expected="+expectedResult + ", Actual="+actualResult);
+        Assertions.assertNull(actualResult.getNextCursor());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/9999/messages?after=1669947792:9999
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: no messages are older than the cursor
+     */
+    @Test
+    public void getPageOfMessagesForUserAfterCursor() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages?after=1669947792:9999"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        MessagePage actualResult = objectMapper.readValue(response.body().toString(), MessagePage.class);
+        Assertions.assertTrue(actualResult.getMessages().isEmpty(), "Expected Empty Result, but Result was not Empty");
+        Assertions.assertNull(actualResult.getNextCursor());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/9999/messages?after=abc
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getPageOfMessagesForUserInvalidCursor() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages?after=abc"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+
+    /**
+     * Posting two messages without a timePostedEpoch, then paging through GET
+     * localhost:8080/accounts/9999/messages?limit=1
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the dated message first, then the undated ones newest first, each page's cursor leading to
+     *  the next
+     */
+    @Test
+    public void getPagesOfMessagesForUserWithoutTimePosted() throws IOException, InterruptedException {
+        for (String text : new String[] {"undated 1", "undated 2"}) {
+            HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\": \"" + text + "\"}"))
+                    .header("Content-Type", "application/json")
+                    .build();
+            Assertions.assertEquals(200, webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+
+        List<Message> actualResult = new ArrayList<Message>();
+        List<String> cursors = new ArrayList<String>();
+        String query = "?limit=1";
+        for (int i = 0; i < 3; i++) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/accounts/9999/messages" + query))
+                    .build();
+            HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+            int status = response.statusCode();
+            Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+            MessagePage page = objectMapper.readValue(response.body(), MessagePage.class);
+            actualResult.addAll(page.getMessages());
+            cursors.add(page.getNextCursor());
+            query = "?limit=1&after=" + page.getNextCursor();
+        }
+
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        expectedResult.add(new Message(2, 9999, "undated 2", null));
+        expectedResult.add(new Message(1, 9999, "undated 1", null));
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+        Assertions.assertEquals(List.of("1669947792:9999", ":2"), cursors.subList(0, 2));
+        Assertions.assertNull(cursors.get(2));
+    }
+}
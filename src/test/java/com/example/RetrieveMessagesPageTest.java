@@ -0,0 +1,107 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessagePage;
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RetrieveMessagesPageTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?limit=2
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the two lowest message ids, and a cursor pointing after the second one
+     */
+    @Test
+    public void getFirstPageOfMessages() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?limit=2"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9996, 9996, "test message 3", 1669947792L));
+        expectedResult.add(new Message(9997, 9997, "test message 2", 1669947792L));
+        MessagePage actualResult = objectMapper.readValue(response.body().toString(), MessagePage.class);
+        Assertions.assertEquals(expectedResult, actualResult.getMessages(), "Expected="+expectedResult + ", Actual="+actualResult);
+        Assertions.assertEquals("9997", actualResult.getNextCursor());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?after=9997&limit=2
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the last message, and no further cursor
+     */
+    @Test
+    public void getLastPageOfMessages() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?after=9997&limit=2"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        MessagePage actualResult = objectMapper.readValue(response.body().toString(), MessagePage.class);
+        Assertions.assertEquals(expectedResult, actualResult.getMessages(), "Expected="+expectedResult + ", Actual="+actualResult);
+        Assertions.assertNull(actualResult.getNextCursor());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?limit=0
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getPageOfMessagesInvalidLimit() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?limit=0"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+}
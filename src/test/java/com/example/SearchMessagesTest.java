@@ -0,0 +1,152 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessagePage;
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class SearchMessagesTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void postMessage(String text) throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\": \"" + text + "\",\"timePostedEpoch\": 1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/search?q=MESSAGE+2
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the seeded message containing both terms, matched case-insensitively
+     */
+    @Test
+    public void searchSeededMessages() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/messages/search?q=MESSAGE+2");
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9997, 9997, "test message 2", 1669947792L));
+        MessagePage actualResult = objectMapper.readValue(response.body(), MessagePage.class);
+        Assertions.assertEquals(expectedResult, actualResult.getMessages(), "Expected="+expectedResult + ", Actual="+actualResult);
+        Assertions.assertNull(actualResult.getNextCursor());
+    }
+
+    /**
+     * Posting two messages, then sending http requests to GET localhost:8080/messages/search?q=hello&limit=1 and
+     * the page after it
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the message using the term most often first, then the other one with no further cursor
+     */
+    @Test
+    public void searchNewMessagesRankedAndPaged() throws IOException, InterruptedException {
+        postMessage("hello there");
+        postMessage("hello hello, said the echo");
+
+        HttpResponse<String> response = get("/messages/search?q=hello&limit=1");
+        Assertions.assertEquals(200, response.statusCode());
+        MessagePage firstPage = objectMapper.readValue(response.body(), MessagePage.class);
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(2, 9999, "hello hello, said the echo", 1669947792L));
+        Assertions.assertEquals(expectedResult, firstPage.getMessages(), "Expected="+expectedResult + ", Actual="+firstPage);
+        Assertions.assertNotNull(firstPage.getNextCursor());
+
+        response = get("/messages/search?q=hello&limit=1&after=" + firstPage.getNextCursor());
+        MessagePage secondPage = objectMapper.readValue(response.body(), MessagePage.class);
+        expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(1, 9999, "hello there", 1669947792L));
+        Assertions.assertEquals(expectedResult, secondPage.getMessages(), "Expected="+expectedResult + ", Actual="+secondPage);
+        Assertions.assertNull(secondPage.getNextCursor());
+    }
+
+    /**
+     * Updating and deleting seeded messages, then sending an http request to GET
+     * localhost:8080/messages/search?q=test
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the message that still contains the term
+     */
+    @Test
+    public void searchReflectsUpdatesAndDeletes() throws IOException, InterruptedException {
+        HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"updated message\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(patchMessageRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        HttpRequest deleteMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997"))
+                .DELETE()
+                .build();
+        Assertions.assertEquals(200, webClient.send(deleteMessageRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpResponse<String> response = get("/messages/search?q=test");
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9996, 9996, "test message 3", 1669947792L));
+        MessagePage actualResult = objectMapper.readValue(response.body(), MessagePage.class);
+        Assertions.assertEquals(expectedResult, actualResult.getMessages(), "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/search with no query
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void searchWithoutQuery() throws IOException, InterruptedException {
+        int status = get("/messages/search").statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+}
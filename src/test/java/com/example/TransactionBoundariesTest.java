@@ -0,0 +1,141 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TransactionBoundariesTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Statistics statistics;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        statistics = app.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/messages, PATCH localhost:8080/messages/9999 and
+     * DELETE localhost:8080/messages/9997
+     *
+     * Expected Response:
+     *  Status Code: 200 for each
+     *  Each write commits exactly one transaction
+     */
+    @Test
+    public void writesRunInOneTransaction() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        assertOneTransaction(postMessageRequest);
+
+        HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"text changed\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        assertOneTransaction(patchMessageRequest);
+
+        HttpRequest deleteMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997"))
+                .DELETE()
+                .build();
+        assertOneTransaction(deleteMessageRequest);
+    }
+
+    /**
+     * Sending http requests to the message read endpoints, including GET localhost:8080/messages/export
+     *
+     * Expected Response:
+     *  Status Code: 200 for each
+     *  No read flushes the persistence context
+     */
+    @Test
+    public void readsDoNotFlush() throws IOException, InterruptedException {
+        String[] paths = {"/messages", "/messages?limit=2", "/messages/9999", "/accounts/9999/messages",
+                "/accounts/9999/messages?limit=2", "/messages/export"};
+        statistics.clear();
+        for (String path : paths) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080" + path))
+                    .build();
+            HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 for " + path + " - Actual Code was: " + response.statusCode());
+        }
+        Assertions.assertEquals(0, statistics.getFlushCount(), "Expected no read to flush.");
+        Assertions.assertEquals(0, statistics.getEntityUpdateCount(), "Expected no read to write.");
+    }
+
+    /**
+     * Sending an http request to PATCH localhost:8080/messages/9999, then GET localhost:8080/messages/export
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the export streams the committed update, in one transaction that writes nothing
+     */
+    @Test
+    public void exportStreamsCommittedWrites() throws IOException, InterruptedException {
+        HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"text changed\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(patchMessageRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest exportRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/export"))
+                .build();
+        statistics.clear();
+        HttpResponse<String> response = webClient.send(exportRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        String[] lines = response.body().split("\n");
+        Message actualResult = objectMapper.readValue(lines[lines.length - 1], Message.class);
+        Assertions.assertEquals(new Message(9999, 9999, "text changed", 1669947792L), actualResult);
+        Assertions.assertEquals(1, statistics.getTransactionCount(), "Expected the export to run in one transaction.");
+        Assertions.assertEquals(0, statistics.getFlushCount(), "Expected the export not to flush.");
+    }
+
+    private void assertOneTransaction(HttpRequest request) throws IOException, InterruptedException {
+        statistics.clear();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Assertions.assertEquals(1, statistics.getTransactionCount(), "Expected one transaction for " + request.method() + " " + request.uri());
+        Assertions.assertEquals(1, statistics.getSuccessfulTransactionCount(), "Expected the transaction for " + request.method() + " " + request.uri() + " to commit.");
+    }
+}
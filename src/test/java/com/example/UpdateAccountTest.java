@@ -0,0 +1,151 @@
+package com.example;
+
+import java.io.IOException;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.AccountView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class UpdateAccountTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to PUT localhost:8080/accounts/9999 with a new username and no password, then logging
+     * in with the new username and the old password.
+     * 
+     * Expected Response:
+     *  Status Code: 200 for the update and for the login
+     *  Response Body: the account without its password
+     */
+    @Test
+    public void updateAccountWithoutPasswordKeepsPassword() throws IOException, InterruptedException {
+        HttpResponse<String> response = put("/accounts/9999", "{\"username\":\"renameduser\"}");
+        Assertions.assertEquals(200, response.statusCode());
+        AccountView actualResult = objectMapper.readValue(response.body(), AccountView.class);
+        Assertions.assertEquals(9999, actualResult.getAccountId());
+        Assertions.assertEquals("renameduser", actualResult.getUsername());
+        Assertions.assertFalse(response.body().contains("password"));
+
+        Assertions.assertEquals(200, login("renameduser", "password").statusCode());
+        Assertions.assertEquals(401, login("testuser1", "password").statusCode());
+    }
+
+    /**
+     * Sending an http request to PUT localhost:8080/accounts/9999 with a new password, then logging in with it.
+     * 
+     * Expected Response:
+     *  Status Code: 200 for the update and the new password, 401 for the old password
+     */
+    @Test
+    public void updateAccountPassword() throws IOException, InterruptedException {
+        HttpResponse<String> response = put("/accounts/9999", "{\"username\":\"testuser1\",\"password\":\"newpass\"}");
+        Assertions.assertEquals(200, response.statusCode());
+
+        Assertions.assertEquals(200, login("testuser1", "newpass").statusCode());
+        Assertions.assertEquals(401, login("testuser1", "password").statusCode());
+    }
+
+    /**
+     * Sending an http request to PUT localhost:8080/accounts/9999 with a blank username.
+     * 
+     * Expected Response:
+     *  Status Code: 400, and the account is unchanged
+     */
+    @Test
+    public void updateAccountBlankUsername() throws IOException, InterruptedException {
+        HttpResponse<String> response = put("/accounts/9999", "{\"username\":\" \",\"password\":\"newpass\"}");
+        Assertions.assertEquals(400, response.statusCode());
+
+        Assertions.assertEquals(200, login("testuser1", "password").statusCode());
+    }
+
+    /**
+     * Sending an http request to PUT localhost:8080/accounts/9999 with a password shorter than 4 characters.
+     * 
+     * Expected Response:
+     *  Status Code: 400, and the account is unchanged
+     */
+    @Test
+    public void updateAccountShortPassword() throws IOException, InterruptedException {
+        HttpResponse<String> response = put("/accounts/9999", "{\"username\":\"testuser1\",\"password\":\"abc\"}");
+        Assertions.assertEquals(400, response.statusCode());
+
+        Assertions.assertEquals(200, login("testuser1", "password").statusCode());
+    }
+
+    /**
+     * Sending an http request to PUT localhost:8080/accounts/9999 with the username of another account.
+     * 
+     * Expected Response:
+     *  Status Code: 409
+     */
+    @Test
+    public void updateAccountUsernameTaken() throws IOException, InterruptedException {
+        HttpResponse<String> response = put("/accounts/9999", "{\"username\":\"testuser2\"}");
+        Assertions.assertEquals(409, response.statusCode());
+    }
+
+    /**
+     * Sending an http request to PUT localhost:8080/accounts/404 for an account that does not exist.
+     * 
+     * Expected Response:
+     *  Status Code: 404
+     */
+    @Test
+    public void updateAccountNotFound() throws IOException, InterruptedException {
+        HttpResponse<String> response = put("/accounts/404", "{\"username\":\"nobody\",\"password\":\"password\"}");
+        Assertions.assertEquals(404, response.statusCode());
+    }
+
+    private HttpResponse<String> put(String path, String json) throws IOException, InterruptedException {
+        HttpRequest putRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .PUT(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(putRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> login(String username, String password) throws IOException, InterruptedException {
+        String json = "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}";
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+    }
+}
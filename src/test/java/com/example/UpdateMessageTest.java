@@ -5,6 +5,14 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -13,6 +21,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
 
+import com.example.entity.Message;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class UpdateMessageTest {
@@ -123,4 +132,69 @@ public class UpdateMessageTest {
         int status = response.statusCode();
         Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
     }
+
+    /**
+     * Sending PATCH localhost:8080/messages/9999 and PATCH localhost:8080/messages/100: the first locks the row to
+     * read its author and updates it in one more statement, without loading the message; the second runs no update.
+     *
+     * Expected Response:
+     *  Status Code: 200, then 400
+     *  Response Body: 1 for the existing message
+     */
+    @Test
+    public void updateMessageStatements() throws IOException, InterruptedException {
+        Statistics statistics = app.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        String json = "{\"messageText\": \"text changed\"}";
+
+        statistics.clear();
+        HttpResponse<String> response = webClient.send(patchMessageRequest(9999, json), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Assertions.assertEquals("1", response.body());
+        Assertions.assertEquals(2, statistics.getPrepareStatementCount(), "Expected the locked author read and the update.");
+        Assertions.assertEquals(0, statistics.getEntityLoadCount(), "Expected the update not to load the message.");
+
+        statistics.clear();
+        response = webClient.send(patchMessageRequest(100, json), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(400, response.statusCode(), "Expected Status Code 400 - Actual Code was: " + response.statusCode());
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount(), "Expected only the author read.");
+    }
+
+    /**
+     * Sending several concurrent PATCH localhost:8080/messages/9999 requests, then GET localhost:8080/messages/9999
+     *
+     * Expected Response:
+     *  Status Code: 200 for every request
+     *  Response Body: 1 for every update; the message then holds the text of one of them
+     */
+    @Test
+    public void concurrentUpdatesAllApply() throws IOException, InterruptedException {
+        List<String> texts = new ArrayList<>();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            texts.add("concurrent update " + i);
+            String json = "{\"messageText\": \"concurrent update " + i + "\"}";
+            responses.add(webClient.sendAsync(patchMessageRequest(9999, json), HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            Assertions.assertEquals(200, response.join().statusCode());
+            Assertions.assertEquals("1", response.join().body());
+        }
+
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        HttpResponse<String> response = webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Message actualResult = objectMapper.readValue(response.body(), Message.class);
+        Assertions.assertTrue(texts.contains(actualResult.getMessageText()),
+                "Expected the text of one of the updates, but was " + actualResult.getMessageText() + ".");
+    }
+
+    private HttpRequest patchMessageRequest(int messageId, String json) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+    }
 }
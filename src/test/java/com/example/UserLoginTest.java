@@ -13,6 +13,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import com.example.entity.Account;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -104,4 +105,100 @@ public class UserLoginTest {
         int status = response.statusCode();
         Assertions.assertEquals(401, status, "Expected Status Code 401 - Actual Code was: " + status);
     }
+
+    /**
+     * Registering a new account and then sending an http request to POST localhost:8080/login with its credentials.
+     * Only a salted hash of the password is stored.
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of user object
+     */
+    @Test
+    public void loginWithHashedPasswordSuccessful() throws IOException, InterruptedException {
+        String json = "{\"username\":\"hasheduser\",\"password\":\"secret123\"}";
+        HttpRequest registerRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> registerResponse = webClient.send(registerRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, registerResponse.statusCode());
+        int accountId = objectMapper.readValue(registerResponse.body(), Account.class).getAccountId();
+
+        String stored = app.getBean(JdbcTemplate.class)
+                .queryForObject("select password from account where accountId = ?", String.class, accountId);
+        Assertions.assertNotEquals("secret123", stored);
+
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        Account actualResult = objectMapper.readValue(response.body(), Account.class);
+        Assertions.assertEquals(new Account(accountId, "hasheduser", "secret123"), actualResult);
+
+        String wrongJson = "{\"username\":\"hasheduser\",\"password\":\"secret124\"}";
+        HttpRequest wrongRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(wrongJson))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> wrongResponse = webClient.send(wrongRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(401, wrongResponse.statusCode());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/login for a seeded account whose password is still stored in
+     * plain text. The login succeeds and the password is rehashed, after which the same login still succeeds.
+     * 
+     * Expected Response:
+     *  Status Code: 200, twice
+     */
+    @Test
+    public void loginWithLegacyPasswordRehashes() throws IOException, InterruptedException {
+        JdbcTemplate jdbcTemplate = app.getBean(JdbcTemplate.class);
+        Assertions.assertEquals("password",
+                jdbcTemplate.queryForObject("select password from account where accountId = 9999", String.class));
+
+        String json = "{\"username\":\"testuser1\",\"password\":\"password\"}";
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+
+        String stored = jdbcTemplate.queryForObject("select password from account where accountId = 9999", String.class);
+        Assertions.assertNotEquals("password", stored);
+
+        HttpResponse<String> secondResponse = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, secondResponse.statusCode());
+        Account actualResult = objectMapper.readValue(secondResponse.body(), Account.class);
+        Assertions.assertEquals(new Account(9999, "testuser1", "password"), actualResult);
+    }
+
+    /**
+     * Sending the same http request to POST localhost:8080/login twice for a username that does not exist, so the
+     * second attempt is answered from the cached miss.
+     * 
+     * Expected Response:
+     * 	Status Code: 401, twice
+     */
+    @Test
+    public void loginUnknownUserRepeated() throws IOException, InterruptedException {
+        String json = "{\"username\":\"nobody\",\"password\":\"password\"}";
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(401, response.statusCode());
+        HttpResponse<String> secondResponse = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(401, secondResponse.statusCode());
+    }
 }
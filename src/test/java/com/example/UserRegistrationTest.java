@@ -83,4 +83,43 @@ public class UserRegistrationTest {
         Assertions.assertEquals(200, status1, "Expected Status Code 200 - Actual Code was: " + status1);
         Assertions.assertEquals(409, status2, "Expected Status Code 409 - Actual Code was: " + status2);
     }
+
+    /**
+     * Sending an http request to POST localhost:8080/register with a username that was seeded straight into the
+     * database
+     *
+     * Expected Response:
+     *  Status Code: 409
+     */
+    @Test
+    public void registerUserSeededUsername() throws IOException, InterruptedException {
+    	String json = "{\"username\":\"testuser1\",\"password\":\"password\"}";
+    	HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(409, status, "Expected Status Code 409 - Actual Code was: " + status);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/register with a blank username
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void registerUserBlankUsername() throws IOException, InterruptedException {
+    	String json = "{\"username\":\"\",\"password\":\"password\"}";
+    	HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
 }
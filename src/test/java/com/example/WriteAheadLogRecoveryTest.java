@@ -0,0 +1,240 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.entity.Message;
+import com.example.service.MessageService;
+import com.example.wal.WriteAheadLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class WriteAheadLogRecoveryTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Path walDirectory;
+
+    /**
+     * Before every test, reset the database, restart the app with the write-ahead log enabled in an empty
+     * directory, and create a new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws IOException, InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        walDirectory = Files.createTempDirectory("wal");
+        start();
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private void start() throws InterruptedException {
+        String[] args = new String[] {"--app.wal.enabled=true", "--app.wal.directory=" + walDirectory,
+                "--app.wal.segment-size-mb=1"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    // Stops the app, which drops the in-memory database, and starts it again on the same log
+    private void restart() throws InterruptedException {
+        SpringApplication.exit(app);
+        start();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages, restarting the app, then GET
+     * localhost:8080/messages/1
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the message created before the restart
+     */
+    @Test
+    public void createdMessageSurvivesRestart() throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\": \"hello message\"," +
+                        "\"timePostedEpoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, send(postMessageRequest).statusCode());
+
+        restart();
+
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .build();
+        HttpResponse<String> response = send(getMessageRequest);
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        Message expectedResult = new Message(1, 9999, "hello message", 1669947792L);
+        Message actualResult = objectMapper.readValue(response.body(), Message.class);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+
+    /**
+     * Sending http requests to PATCH localhost:8080/messages/9999 and DELETE localhost:8080/messages/9997,
+     * restarting the app, then GET both messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the updated text for 9999, and nothing for the deleted 9997
+     */
+    @Test
+    public void updateAndDeleteSurviveRestart() throws IOException, InterruptedException {
+        HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"updated message\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, send(patchMessageRequest).statusCode());
+        HttpRequest deleteMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997"))
+                .DELETE()
+                .build();
+        Assertions.assertEquals(200, send(deleteMessageRequest).statusCode());
+
+        restart();
+
+        HttpResponse<String> updated = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build());
+        Message expectedResult = new Message(9999, 9999, "updated message", 1669947792L);
+        Message actualResult = objectMapper.readValue(updated.body(), Message.class);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+
+        HttpResponse<String> deleted = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997"))
+                .build());
+        Assertions.assertEquals(200, deleted.statusCode());
+        Assertions.assertEquals("", deleted.body());
+    }
+
+    /**
+     * Sending many concurrent http requests to PATCH localhost:8080/messages/9999, each with its own text, then
+     * GET the message, restart the app and GET it again
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the same text before and after the restart; the log replays the updates in commit order
+     */
+    @Test
+    public void concurrentUpdatesReplayInCommitOrder() throws IOException, InterruptedException {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages/9999"))
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"update " + i + "\"}"))
+                    .header("Content-Type", "application/json")
+                    .build();
+            responses.add(webClient.sendAsync(patchMessageRequest, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            Assertions.assertEquals(200, response.join().statusCode());
+        }
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        Message expectedResult = objectMapper.readValue(send(getMessageRequest).body(), Message.class);
+
+        restart();
+
+        Message actualResult = objectMapper.readValue(send(getMessageRequest).body(), Message.class);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+
+    /**
+     * Sending an http request to PATCH localhost:8080/messages/9999, compacting the log, sending another, then
+     * restarting the app and GET the message
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the text of the second update, replayed on top of the snapshot
+     */
+    @Test
+    public void updatesSurviveCompaction() throws IOException, InterruptedException {
+        HttpRequest firstPatchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"before snapshot\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, send(firstPatchRequest).statusCode());
+        app.getBean(WriteAheadLog.class).compact();
+        HttpRequest secondPatchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"after snapshot\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, send(secondPatchRequest).statusCode());
+
+        restart();
+
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build());
+        Message expectedResult = new Message(9999, 9999, "after snapshot", 1669947792L);
+        Message actualResult = objectMapper.readValue(response.body(), Message.class);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+
+    /**
+     * Updating message 9999 in a transaction that fails to commit after the write-ahead log appended the change,
+     * restarting the app, then GET localhost:8080/messages/9999
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the original text; replay skips the rolled-back update
+     */
+    @Test
+    public void rolledBackUpdateNotReplayed() throws IOException, InterruptedException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(app.getBean(PlatformTransactionManager.class));
+        Assertions.assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            app.getBean(MessageService.class).updateMessage(9999, new Message(9999, "rolled back", null));
+            // Registered after the log's listener, so it fails the commit once the update is logged
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    throw new IllegalStateException("Forced rollback");
+                }
+            });
+        }));
+
+        restart();
+
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build());
+        Assertions.assertEquals(200, response.statusCode());
+        Message expectedResult = new Message(9999, 9999, "test message 1", 1669947792L);
+        Message actualResult = objectMapper.readValue(response.body(), Message.class);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.benchmark;
+
+import com.example.entity.Account;
+import com.example.service.AccountService;
+import com.example.service.PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline latency of AccountService login and registration at different account table sizes.
+ *
+ * Logins pick a random seeded user each call, so with more accounts than the credentials cache holds they
+ * include cache misses. Both paths are dominated by password hashing; see LoginBenchmark for how that scales
+ * with the hash cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AccountServiceBenchmark {
+
+    @Param({"100", "100000"})
+    public int accountCount;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seedAccounts(context, accountCount, context.getBean(PasswordHasher.class).hash("password"));
+        accountService = context.getBean(AccountService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Integer login() {
+        return accountService.authenticate("user" + ThreadLocalRandom.current().nextInt(accountCount), "password");
+    }
+
+    @Benchmark
+    public Integer loginUnknownUser() {
+        return accountService.authenticate("unknown" + ThreadLocalRandom.current().nextInt(accountCount), "password");
+    }
+
+    @Benchmark
+    public Account register() {
+        return accountService.createAccount(new Account(UUID.randomUUID().toString(), "password"));
+    }
+}
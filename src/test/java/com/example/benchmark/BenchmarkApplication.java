@@ -0,0 +1,88 @@
+package com.example.benchmark;
+
+import com.example.SocialMediaApp;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Boots the application for a benchmark: the full Spring context against the in-memory H2 database, without the
+ * web server, so benchmarks measure the service and repository layers directly.
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    /**
+     * Starts a fresh context (and with it a freshly seeded database).
+     * @param properties extra "key=value" application properties for this run
+     * @return the running context; close it in the benchmark's tear down
+     */
+    public static ConfigurableApplicationContext start(String... properties) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SocialMediaApp.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=warn", "spring.main.banner-mode=off")
+                .properties(properties)
+                .run();
+
+        // The seed rows in data.sql use ids 9996-9999, which a long benchmark run would otherwise collide with
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.execute("alter sequence account_seq restart with 100000");
+        jdbcTemplate.execute("alter sequence message_seq restart with 100000");
+        return context;
+    }
+
+    /**
+     * Bulk inserts messages straight through JDBC, spread evenly over the four seeded accounts, with ids from
+     * 1000000 up so they stay clear of both the seed rows and ids handed out by the sequence.
+     * @param context a context returned by {@link #start(String...)}
+     * @param count number of messages to insert
+     */
+    public static void seedMessages(ConfigurableApplicationContext context, int count) {
+        seedMessages(context, count, i -> "seeded message " + i);
+    }
+
+    /**
+     * Same as {@link #seedMessages(ConfigurableApplicationContext, int)}, with caller-supplied message text.
+     * @param context a context returned by {@link #start(String...)}
+     * @param count number of messages to insert
+     * @param text text of the i-th message
+     */
+    public static void seedMessages(ConfigurableApplicationContext context, int count, IntFunction<String> text) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{1000000 + i, 9996 + i % 4, text.apply(i), 1669947792L + i});
+            if (rows.size() == 1000 || i == count - 1) {
+                jdbcTemplate.batchUpdate("insert into message (messageId, postedBy, messageText, timePostedEpoch) "
+                        + "values (?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    /**
+     * Bulk inserts accounts "user0", "user1", ... straight through JDBC, all with the same stored password hash,
+     * with ids from 1000000 up.
+     * @param context a context returned by {@link #start(String...)}
+     * @param count number of accounts to insert
+     * @param passwordHash stored password value for every account
+     */
+    public static void seedAccounts(ConfigurableApplicationContext context, int count, String passwordHash) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{1000000 + i, "user" + i, passwordHash});
+            if (rows.size() == 1000 || i == count - 1) {
+                jdbcTemplate.batchUpdate("insert into account (accountId, username, password) values (?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.benchmark;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.repository.AccountRepository;
+import com.example.repository.MessageRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+
+/**
+ * Insert throughput of accounts and messages for different id allocation sizes.
+ *
+ * An allocation size of 1 fetches a sequence value for every insert, which is how ids were generated before
+ * PooledSequenceGenerator; larger sizes reserve a block of ids per round trip. Runs with several threads so the
+ * contention on the sequence between concurrent writers shows up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+public class IdGenerationBenchmark {
+
+    @Param({"1", "50"})
+    public int allocationSize;
+
+    private ConfigurableApplicationContext context;
+    private AccountRepository accountRepository;
+    private MessageRepository messageRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("spring.jpa.properties.app.id.allocation_size=" + allocationSize);
+        accountRepository = context.getBean(AccountRepository.class);
+        messageRepository = context.getBean(MessageRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Account insertAccount() {
+        return accountRepository.save(new Account(UUID.randomUUID().toString(), "password"));
+    }
+
+    @Benchmark
+    public Message insertMessage() {
+        return messageRepository.save(new Message(9999, "benchmark message", 1669947792L));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.benchmark;
+
+import com.example.entity.Account;
+import com.example.service.AccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Login throughput for different password hashing costs (PBKDF2 iterations).
+ *
+ * Credentials are served from AccountService's cache after the first login, so this measures what a steady
+ * stream of logins costs: almost entirely the hash verification. Pick the highest cost whose throughput still
+ * covers peak login traffic.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+public class LoginBenchmark {
+
+    @Param({"10000", "100000", "310000"})
+    public int iterations;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("app.security.password-hash-iterations=" + iterations);
+        accountService = context.getBean(AccountService.class);
+        accountService.createAccount(new Account("benchmark", "password"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Integer loginSuccessful() {
+        return accountService.authenticate("benchmark", "password");
+    }
+
+    @Benchmark
+    public Integer loginWrongPassword() {
+        return accountService.authenticate("benchmark", "wrong password");
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.benchmark;
+
+import com.example.dto.MessagePage;
+import com.example.entity.Message;
+import com.example.search.MessageSearchIndex;
+import com.example.service.MessageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of GET /messages/search at millions of messages, against the LIKE '%term%' scan it replaces.
+ *
+ * Messages are twelve words drawn from a 20000 word vocabulary with a heavily skewed (log-uniform) distribution,
+ * so the most common word appears in about half of all messages and the rarest in a handful. The search
+ * benchmarks go through MessageService, so they include loading the page of 50 messages from the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MessageSearchBenchmark {
+
+    private static final int VOCABULARY_SIZE = 20000;
+    private static final int WORDS_PER_MESSAGE = 12;
+
+    @Param({"100000", "1000000", "3000000"})
+    public int messageCount;
+
+    private ConfigurableApplicationContext context;
+    private MessageService messageService;
+    private JdbcTemplate jdbcTemplate;
+    private String[] vocabulary;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        vocabulary = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            vocabulary[i] = "w" + Integer.toString(i, 36);
+        }
+        Random random = new Random(42);
+        BenchmarkApplication.seedMessages(context, messageCount, i -> {
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < WORDS_PER_MESSAGE; w++) {
+                text.append(vocabulary[word(random)]).append(' ');
+            }
+            return text.toString();
+        });
+        // Rows were inserted behind the index's back, so build it again from the table
+        context.getBean(MessageSearchIndex.class).rebuild();
+        messageService = context.getBean(MessageService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Word index with P(k) falling off as 1/k, so low indexes are very common
+    private static int word(Random random) {
+        return (int) Math.min(VOCABULARY_SIZE - 1, Math.exp(random.nextDouble() * Math.log(VOCABULARY_SIZE)) - 1);
+    }
+
+    @Benchmark
+    public MessagePage searchCommonTerm() {
+        return messageService.searchMessages(vocabulary[0], null, MessageService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MessagePage searchMediumTerm() {
+        return messageService.searchMessages(vocabulary[100], null, MessageService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MessagePage searchRareTerm() {
+        return messageService.searchMessages(vocabulary[15000], null, MessageService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MessagePage searchTwoTerms() {
+        return messageService.searchMessages(vocabulary[5] + " " + vocabulary[5000], null,
+                MessageService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Message indexNewMessage() {
+        return messageService.createMessage(new Message(9999, vocabulary[7] + " " + vocabulary[700] + " "
+                + vocabulary[7000], 1669947792L));
+    }
+
+    // The query the index replaces: a full scan of the message table for a rare term
+    @Benchmark
+    public List<Integer> likeScanRareTerm() {
+        return jdbcTemplate.queryForList("select messageId from message where lower(messageText) like ? limit 50",
+                Integer.class, "%" + vocabulary[15000] + "%");
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.benchmark;
+
+import com.example.dto.MessagePage;
+import com.example.entity.Message;
+import com.example.service.MessageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline latency of the MessageService hot paths at different table sizes.
+ *
+ * The message table is seeded with tableSize rows spread over the four seeded accounts, so
+ * getMessagesByAccountId returns a quarter of the table and getAllMessages all of it. getMessageById picks a
+ * random seeded id each call, so once the table outgrows the message cache it measures a mix of hits and misses.
+ * createMessage grows the table as it runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MessageServiceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int tableSize;
+
+    private ConfigurableApplicationContext context;
+    private MessageService messageService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seedMessages(context, tableSize);
+        messageService = context.getBean(MessageService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Message createMessage() {
+        return messageService.createMessage(new Message(9999, "benchmark message", 1669947792L));
+    }
+
+    @Benchmark
+    public Message getMessageById() {
+        return messageService.getMessageById(1000000 + ThreadLocalRandom.current().nextInt(tableSize));
+    }
+
+    @Benchmark
+    public List<Message> getMessagesByAccountId() {
+        return messageService.getMessagesByAccountId(9999);
+    }
+
+    @Benchmark
+    public MessagePage getMessagesPageByAccountId() {
+        return messageService.getMessagesPageByAccountId(9999, null, MessageService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Message> getAllMessages() {
+        return messageService.getAllMessages();
+    }
+
+    @Benchmark
+    public MessagePage getMessagesPage() {
+        return messageService.getMessagesPage(null, MessageService.DEFAULT_PAGE_SIZE);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.benchmark;
+
+import com.example.entity.Message;
+import com.example.repository.MessageRepository;
+import com.example.service.MessageService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and statement counts of reads and writes under different transaction boundaries.
+ *
+ * The read pair loads the same managed Message entities in a read-only and a read-write transaction: only the
+ * read-write one dirty checks and flushes them at commit. The write pair compares MessageService.updateMessage
+ * (one transaction, one UPDATE) with the old find-then-save path, where each repository call ran in its own
+ * transaction. Per-operation statement, transaction and flush counts from Hibernate's statistics are printed at
+ * the end of each run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TransactionBoundaryBenchmark {
+
+    private static final int MESSAGE_COUNT = 1000;
+
+    private ConfigurableApplicationContext context;
+    private MessageService messageService;
+    private MessageRepository messageRepository;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate readWriteTransaction;
+    private Statistics statistics;
+    private Integer messageId;
+    private long operations;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("spring.jpa.properties.hibernate.generate_statistics=true");
+        messageService = context.getBean(MessageService.class);
+        messageRepository = context.getBean(MessageRepository.class);
+
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            messages.add(new Message(9999, "benchmark message " + i, 1669947792L + i));
+        }
+        messageId = messageRepository.saveAll(messages).get(0).getMessageId();
+
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        operations = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nper operation: %.2f statements, %.2f transactions, %.2f flushes, %.0f entities loaded%n",
+                (double) statistics.getPrepareStatementCount() / operations,
+                (double) statistics.getTransactionCount() / operations,
+                (double) statistics.getFlushCount() / operations,
+                (double) statistics.getEntityLoadCount() / operations);
+        context.close();
+    }
+
+    @Benchmark
+    public List<Message> readEntitiesReadOnly() {
+        operations++;
+        return readOnlyTransaction.execute(status -> messageRepository.findAll());
+    }
+
+    @Benchmark
+    public List<Message> readEntitiesReadWrite() {
+        operations++;
+        return readWriteTransaction.execute(status -> messageRepository.findAll());
+    }
+
+    @Benchmark
+    public int updateMessageSingleTransaction() {
+        operations++;
+        return messageService.updateMessage(messageId, new Message(9999, "updated message", 1669947792L));
+    }
+
+    @Benchmark
+    public Message updateMessageFindThenSave() {
+        operations++;
+        Message message = messageRepository.findById(messageId).orElseThrow();
+        message.setMessageText("updated message");
+        return messageRepository.save(message);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BoundedCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private String load(Integer key) {
+        loads.incrementAndGet();
+        return "value " + key;
+    }
+
+    /**
+     * Reading more keys than the cache holds
+     *
+     * Expected: the size never exceeds the maximum, and the least recently used key is the one evicted
+     */
+    @Test
+    public void evictsLeastRecentlyUsedBeyondMaximumSize() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(2, 1, TimeUnit.HOURS, now::get);
+        cache.get(1, this::load);
+        cache.get(2, this::load);
+        cache.get(1, this::load);
+        cache.get(3, this::load);
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals("value 1", cache.getIfPresent(1));
+        Assertions.assertNull(cache.getIfPresent(2));
+        Assertions.assertEquals(1L, cache.stats().get("evictions"));
+        Assertions.assertEquals(0L, cache.stats().get("expirations"));
+
+        BoundedCache<Integer, String> largeCache = new BoundedCache<>(1000, 1, TimeUnit.HOURS, now::get);
+        for (int key = 0; key < 5000; key++) {
+            largeCache.get(key, this::load);
+        }
+        Assertions.assertTrue(largeCache.size() <= 1000, "Size was " + largeCache.size());
+        Assertions.assertEquals(5000L - largeCache.size(), largeCache.stats().get("evictions"));
+    }
+
+    /**
+     * Reading a key again before and after its time to live has passed
+     *
+     * Expected: a hit before, a reload after, counted as an expiration and not an eviction
+     */
+    @Test
+    public void reloadsAfterTimeToLive() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, 60, TimeUnit.SECONDS, now::get);
+        cache.get(1, this::load);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        cache.get(1, this::load);
+        Assertions.assertEquals(1, loads.get());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        cache.get(1, this::load);
+        Assertions.assertEquals(2, loads.get());
+        Assertions.assertEquals(1L, cache.stats().get("hits"));
+        Assertions.assertEquals(2L, cache.stats().get("misses"));
+        Assertions.assertEquals(1L, cache.stats().get("expirations"));
+        Assertions.assertEquals(0L, cache.stats().get("evictions"));
+    }
+
+    /**
+     * Caching null, then invalidating the key
+     *
+     * Expected: the null is served from the cache until the invalidation, then the key is loaded again
+     */
+    @Test
+    public void cachesNullUntilInvalidated() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, 1, TimeUnit.HOURS, now::get);
+        Assertions.assertNull(cache.get(1, key -> { loads.incrementAndGet(); return null; }));
+        Assertions.assertNull(cache.get(1, this::load));
+        Assertions.assertEquals(1, loads.get());
+
+        cache.invalidate(1);
+        Assertions.assertEquals("value 1", cache.get(1, this::load));
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    /**
+     * Invalidating a key while it is being loaded, and another key while a second key is being loaded
+     *
+     * Expected: the load that raced its own key's invalidation is returned but not cached; the other is cached
+     */
+    @Test
+    public void invalidationDuringLoadOnlyAffectsThatKey() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, 1, TimeUnit.HOURS, now::get);
+        Assertions.assertEquals("stale", cache.get(1, key -> {
+            cache.invalidate(1);
+            return "stale";
+        }));
+        Assertions.assertNull(cache.getIfPresent(1));
+
+        Assertions.assertEquals("value 2", cache.get(2, key -> {
+            cache.invalidate(3);
+            return load(key);
+        }));
+        Assertions.assertEquals("value 2", cache.getIfPresent(2));
+    }
+}
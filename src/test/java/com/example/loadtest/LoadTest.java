@@ -0,0 +1,362 @@
+package com.example.loadtest;
+
+import com.example.SocialMediaApp;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HTTP load generator for the SocialMediaController and MessageController routes.
+ *
+ * Each client thread registers its own account, then sends requests drawn from the configured mix, reading,
+ * patching and deleting only messages it posted itself so every request has a well defined expected status.
+ * Latencies are recorded per operation in HdrHistograms; the run prints a summary and writes a JSON report, and
+ * exits non-zero when the error rate or a p99 threshold is exceeded.
+ *
+ * Run with: mvn -Ploadtest -DskipTests integration-test -Dloadtest.args="threads=32 duration=60"
+ * (see LoadTestConfig for every setting).
+ */
+public class LoadTest {
+
+    // Latencies above a minute are clamped; three significant digits keeps each histogram small
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    // Oldest messages are forgotten (not deleted) once a client has posted this many, to bound its memory
+    private static final int MAX_TRACKED_MESSAGES = 10000;
+
+    private final LoadTestConfig config;
+    private final HttpClient webClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Operation[] weightedOperations;
+
+    public LoadTest(LoadTestConfig config) {
+        this.config = config;
+        this.webClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<Operation> operations = new ArrayList<>();
+        config.getMix().forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        });
+        this.weightedOperations = operations.toArray(new Operation[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = new LoadTestConfig(args);
+        ConfigurableApplicationContext app = null;
+        if (config.isBoot()) {
+            int port = URI.create(config.getBaseUrl()).getPort();
+            app = new SpringApplicationBuilder(SocialMediaApp.class)
+                    .properties("server.port=" + (port < 0 ? 80 : port), "logging.level.root=warn",
+                            "spring.main.banner-mode=off")
+                    .profiles(config.getProfiles().isEmpty() ? new String[0] : config.getProfiles().split(","))
+                    .run();
+        }
+
+        boolean passed;
+        try {
+            Map<String, Object> report = new LoadTest(config).run();
+            File reportFile = new File(config.getReport());
+            if (reportFile.getAbsoluteFile().getParentFile() != null) {
+                reportFile.getAbsoluteFile().getParentFile().mkdirs();
+            }
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(reportFile, report);
+            System.out.println("Report written to " + reportFile.getPath());
+            passed = (Boolean) report.get("passed");
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Runs the warm up and the measured period, then builds the report.
+     * @return the report, as nested maps ready to be written as JSON
+     */
+    public Map<String, Object> run() throws IOException, InterruptedException, ExecutionException {
+        // Client accounts are registered up front so the (slow, hashed) registrations are not part of the run
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < config.getThreads(); i++) {
+            Client client = new Client();
+            client.register();
+            clients.add(client);
+        }
+
+        long measureStart = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        long end = measureStart + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        ExecutorService pool = Executors.newFixedThreadPool(config.getThreads());
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            for (Client client : clients) {
+                client.measureStart = measureStart;
+                client.end = end;
+                futures.add(pool.submit(client));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        long[] errors = new long[Operation.values().length];
+        for (Client client : clients) {
+            client.latencies.forEach((operation, histogram) ->
+                    latencies.computeIfAbsent(operation, key -> newHistogram()).add(histogram));
+            for (int i = 0; i < errors.length; i++) {
+                errors[i] += client.errors[i];
+            }
+        }
+        return report(latencies, errors);
+    }
+
+    private Map<String, Object> report(Map<Operation, Histogram> latencies, long[] errors) {
+        double seconds = config.getDurationSeconds();
+        long totalRequests = 0;
+        long totalErrors = 0;
+        List<String> violations = new ArrayList<>();
+        Map<String, Object> operations = new LinkedHashMap<>();
+
+        System.out.printf("%n%-10s %9s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            Operation operation = entry.getKey();
+            Histogram histogram = entry.getValue();
+            long requests = histogram.getTotalCount();
+            long operationErrors = errors[operation.ordinal()];
+            totalRequests += requests;
+            totalErrors += operationErrors;
+
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("min", millis(histogram.getMinValue()));
+            latency.put("mean", histogram.getMean() / 1000.0);
+            latency.put("p50", millis(histogram.getValueAtPercentile(50.0)));
+            latency.put("p90", millis(histogram.getValueAtPercentile(90.0)));
+            latency.put("p99", millis(histogram.getValueAtPercentile(99.0)));
+            latency.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+            latency.put("max", millis(histogram.getMaxValue()));
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("route", operation.getRoute());
+            result.put("requests", requests);
+            result.put("errors", operationErrors);
+            result.put("throughput", requests / seconds);
+            result.put("latencyMillis", latency);
+            operations.put(operation.getKey(), result);
+
+            System.out.printf("%-10s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", operation.getKey(), requests,
+                    operationErrors, requests / seconds, latency.get("p50"), latency.get("p99"), latency.get("p999"),
+                    latency.get("max"));
+
+            double p99 = (Double) latency.get("p99");
+            if (config.getMaxP99Millis() > 0 && p99 > config.getMaxP99Millis()) {
+                violations.add(operation.getKey() + " p99 " + p99 + " ms exceeds " + config.getMaxP99Millis() + " ms");
+            }
+        }
+
+        double errorRate = totalRequests == 0 ? 0 : (double) totalErrors / totalRequests;
+        if (totalRequests == 0) {
+            violations.add("no requests completed");
+        } else if (errorRate > config.getMaxErrorRate()) {
+            violations.add("error rate " + errorRate + " exceeds " + config.getMaxErrorRate());
+        }
+
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("requests", totalRequests);
+        totals.put("errors", totalErrors);
+        totals.put("errorRate", errorRate);
+        totals.put("throughput", totalRequests / seconds);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config.toReport());
+        report.put("totals", totals);
+        report.put("operations", operations);
+        report.put("passed", violations.isEmpty());
+        report.put("violations", violations);
+
+        System.out.printf("%-10s %9d %7d %9.1f%n", "total", totalRequests, totalErrors, totalRequests / seconds);
+        violations.forEach(violation -> System.out.println("FAILED: " + violation));
+        return report;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * One simulated user: an account of its own and the messages it has posted.
+     */
+    private class Client implements Callable<Void> {
+
+        private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        private final long[] errors = new long[Operation.values().length];
+        private final List<Integer> messageIds = new ArrayList<>();
+        private final String username = "load-" + UUID.randomUUID();
+        private Integer accountId;
+
+        // Start of the recorded period and end of the run, as System.nanoTime() values
+        private long measureStart;
+        private long end;
+
+        void register() throws IOException, InterruptedException {
+            HttpResponse<String> registered = post("/register", credentials(username));
+            if (registered == null) {
+                throw new IllegalStateException("Could not register load test account " + username);
+            }
+            accountId = objectMapper.readTree(registered.body()).get("accountId").asInt();
+        }
+
+        @Override
+        public Void call() throws InterruptedException {
+            // With a target rate each client sends on a fixed schedule and latency counts from the scheduled time
+            long interval = config.getRate() > 0 ? TimeUnit.SECONDS.toNanos(config.getThreads()) / config.getRate() : 0;
+            long scheduled = System.nanoTime();
+            while (true) {
+                long intendedStart;
+                if (interval > 0) {
+                    intendedStart = scheduled;
+                    scheduled += interval;
+                    long wait;
+                    while ((wait = intendedStart - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                } else {
+                    intendedStart = System.nanoTime();
+                }
+                if (intendedStart >= end || Thread.currentThread().isInterrupted()) {
+                    return null;
+                }
+
+                Operation operation = nextOperation();
+                boolean ok = execute(operation);
+                if (intendedStart >= measureStart) {
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+                    latencies.computeIfAbsent(operation, key -> newHistogram())
+                            .recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+                    if (!ok) {
+                        errors[operation.ordinal()]++;
+                    }
+                }
+            }
+        }
+
+        // Operations on an existing message fall back to posting one when the client has none
+        private Operation nextOperation() {
+            Operation operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+            boolean needsMessage = operation == Operation.READ || operation == Operation.PATCH
+                    || operation == Operation.DELETE;
+            return needsMessage && messageIds.isEmpty() ? Operation.POST : operation;
+        }
+
+        // Sends one request, returning whether it got the expected response (a 200 for every route)
+        private boolean execute(Operation operation) throws InterruptedException {
+            HttpResponse<String> response;
+            switch (operation) {
+                case REGISTER:
+                    return post("/register", credentials("load-" + UUID.randomUUID())) != null;
+                case LOGIN:
+                    return post("/login", credentials(username)) != null;
+                case POST:
+                    response = post("/messages", "{\"postedBy\":" + accountId
+                            + ",\"messageText\":\"load test message\",\"timePostedEpoch\":"
+                            + System.currentTimeMillis() / 1000 + "}");
+                    if (response == null) {
+                        return false;
+                    }
+                    try {
+                        JsonNode message = objectMapper.readTree(response.body());
+                        messageIds.add(message.get("messageId").asInt());
+                        if (messageIds.size() > MAX_TRACKED_MESSAGES) {
+                            messageIds.remove(0);
+                        }
+                        return true;
+                    } catch (IOException | NullPointerException e) {
+                        return false;
+                    }
+                case READ:
+                    return get("/messages/" + randomMessageId()) != null;
+                case LIST:
+                    return get("/messages?limit=50") != null;
+                case TIMELINE:
+                    return get("/accounts/" + accountId + "/messages?limit=50") != null;
+                case PATCH:
+                    return send(HttpRequest.newBuilder(uri("/messages/" + randomMessageId()))
+                            .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"patched message\"}"))
+                            .header("Content-Type", "application/json")) != null;
+                case DELETE:
+                    Integer messageId = messageIds.remove(ThreadLocalRandom.current().nextInt(messageIds.size()));
+                    return send(HttpRequest.newBuilder(uri("/messages/" + messageId)).DELETE()) != null;
+                default:
+                    throw new IllegalStateException("Unhandled operation " + operation);
+            }
+        }
+
+        private Integer randomMessageId() {
+            return messageIds.get(ThreadLocalRandom.current().nextInt(messageIds.size()));
+        }
+
+        private String credentials(String username) {
+            return "{\"username\":\"" + username + "\",\"password\":\"password\"}";
+        }
+
+        private HttpResponse<String> post(String path, String json) throws InterruptedException {
+            return send(HttpRequest.newBuilder(uri(path))
+                    .POST(HttpRequest.BodyPublishers.ofString(json))
+                    .header("Content-Type", "application/json"));
+        }
+
+        private HttpResponse<String> get(String path) throws InterruptedException {
+            return send(HttpRequest.newBuilder(uri(path)).GET());
+        }
+
+        // Returns the response when it is a 200, and null for any other status or an I/O failure
+        private HttpResponse<String> send(HttpRequest.Builder request) throws InterruptedException {
+            try {
+                HttpResponse<String> response = webClient.send(request.timeout(Duration.ofSeconds(30)).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                return response.statusCode() == 200 ? response : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        private URI uri(String path) {
+            return URI.create(config.getBaseUrl() + path);
+        }
+    }
+}
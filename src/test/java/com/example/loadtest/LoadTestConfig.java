@@ -0,0 +1,149 @@
+package com.example.loadtest;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings for a load test run. Each is read from a "key=value" program argument, then from the
+ * "loadtest.key" system property, then falls back to its default.
+ */
+public class LoadTestConfig {
+
+    static final String DEFAULT_MIX = "register=2,login=10,post=20,read=35,list=10,timeline=15,patch=5,delete=3";
+
+    private final String baseUrl;
+    private final boolean boot;
+    private final String profiles;
+    private final int threads;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final int rate;
+    private final Map<Operation, Integer> mix;
+    private final String report;
+    private final double maxP99Millis;
+    private final double maxErrorRate;
+
+    public LoadTestConfig(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        baseUrl = value(values, "baseUrl", "http://localhost:8080");
+        boot = Boolean.parseBoolean(value(values, "boot", "true"));
+        profiles = value(values, "profiles", "");
+        threads = Integer.parseInt(value(values, "threads", "16"));
+        warmupSeconds = Integer.parseInt(value(values, "warmup", "5"));
+        durationSeconds = Integer.parseInt(value(values, "duration", "30"));
+        rate = Integer.parseInt(value(values, "rate", "0"));
+        mix = parseMix(value(values, "mix", DEFAULT_MIX));
+        report = value(values, "report", "target/loadtest-report.json");
+        maxP99Millis = Double.parseDouble(value(values, "maxP99Millis", "0"));
+        maxErrorRate = Double.parseDouble(value(values, "maxErrorRate", "0.01"));
+        if (threads < 1 || durationSeconds < 1 || warmupSeconds < 0 || rate < 0) {
+            throw new IllegalArgumentException("threads and duration must be positive, warmup and rate not negative");
+        }
+    }
+
+    private static String value(Map<String, String> values, String key, String defaultValue) {
+        String value = values.get(key);
+        return value != null ? value : System.getProperty("loadtest." + key, defaultValue);
+    }
+
+    // "register=2,login=10,..." -> relative weights; operations left out of the mix are never sent
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight in mix but got: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weights cannot be negative: " + entry);
+            }
+            weights.put(Operation.fromKey(parts[0].trim()), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("Mix must give at least one operation a positive weight.");
+        }
+        return weights;
+    }
+
+    /** Base URL of the app under test. */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /** Whether to boot the app in this JVM (on the port of the base URL) before the run. */
+    public boolean isBoot() {
+        return boot;
+    }
+
+    /** Comma separated Spring profiles to activate in the booted app, e.g. "virtual"; empty for none. */
+    public String getProfiles() {
+        return profiles;
+    }
+
+    /** Number of concurrent clients. */
+    public int getThreads() {
+        return threads;
+    }
+
+    /** Seconds of load sent before recording starts. */
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    /** Seconds of recorded load. */
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * Target requests per second across all clients, or 0 to send each request as soon as the previous one
+     * returns. With a target rate latency is measured from when a request was due, not when it was sent, so a
+     * stalled server is not hidden by clients that stopped sending (coordinated omission).
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /** Relative weight of each operation. */
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+
+    /** Path of the JSON report. */
+    public String getReport() {
+        return report;
+    }
+
+    /** Fail the run when any operation's p99 latency exceeds this many milliseconds; 0 disables the check. */
+    public double getMaxP99Millis() {
+        return maxP99Millis;
+    }
+
+    /** Fail the run when the share of unexpected responses exceeds this. */
+    public double getMaxErrorRate() {
+        return maxErrorRate;
+    }
+
+    Map<String, Object> toReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("baseUrl", baseUrl);
+        report.put("profiles", profiles);
+        report.put("threads", threads);
+        report.put("warmupSeconds", warmupSeconds);
+        report.put("durationSeconds", durationSeconds);
+        report.put("rate", rate);
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        mix.forEach((operation, weight) -> weights.put(operation.getKey(), weight));
+        report.put("mix", weights);
+        return report;
+    }
+}
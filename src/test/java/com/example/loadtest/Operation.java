@@ -0,0 +1,40 @@
+package com.example.loadtest;
+
+/**
+ * The requests the load generator can send, named as they appear in the mix and in the report.
+ */
+public enum Operation {
+    REGISTER("register", "POST /register"),
+    LOGIN("login", "POST /login"),
+    POST("post", "POST /messages"),
+    READ("read", "GET /messages/{messageId}"),
+    LIST("list", "GET /messages?limit=50"),
+    TIMELINE("timeline", "GET /accounts/{accountId}/messages?limit=50"),
+    PATCH("patch", "PATCH /messages/{messageId}"),
+    DELETE("delete", "DELETE /messages/{messageId}");
+
+    private final String key;
+    private final String route;
+
+    Operation(String key, String route) {
+        this.key = key;
+        this.route = route;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equalsIgnoreCase(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation in mix: " + key);
+    }
+}